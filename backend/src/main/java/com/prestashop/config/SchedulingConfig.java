@@ -0,0 +1,12 @@
+package com.prestashop.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables {@code @Scheduled} background work, such as draining the storage deletion outbox.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -37,6 +37,9 @@ public class SecurityConfig {
                 .requestMatchers("/api/v1/search/**").permitAll()
                 // Static resources
                 .requestMatchers("/images/**", "/uploads/**").permitAll()
+                // Shopping feeds and sitemaps fetched by merchant platforms and crawlers
+                .requestMatchers(HttpMethod.GET, "/feeds/**", "/sitemap.xml", "/sitemaps/**").permitAll()
+                .requestMatchers(HttpMethod.HEAD, "/feeds/**", "/sitemap.xml", "/sitemaps/**").permitAll()
                 // Swagger/OpenAPI
                 .requestMatchers("/swagger-ui/**", "/api-docs/**", "/swagger-ui.html").permitAll()
                 // H2 Console (dev only)
@@ -0,0 +1,80 @@
+package com.prestashop.controller;
+
+import com.prestashop.service.ProductFeedService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+/**
+ * Serves the latest shopping feed generation built by ProductFeedService, for merchant platforms
+ * to fetch: /feeds/products.xml (RSS 2.0) and /feeds/products.tsv. Files are sent with sendfile
+ * or FileChannel.transferTo; the generation number is the ETag, so an unchanged feed is a 304.
+ */
+@RestController
+@RequestMapping("/feeds")
+@RequiredArgsConstructor
+public class FeedController {
+
+    private static final MediaType TSV = MediaType.parseMediaType("text/tab-separated-values;charset=UTF-8");
+
+    private final ProductFeedService productFeedService;
+
+    @RequestMapping(value = "/products.xml", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public ResponseEntity<StreamingResponseBody> getXmlFeed(HttpMethod method, HttpServletRequest request) throws IOException {
+        ProductFeedService.Generation generation = productFeedService.current();
+        return serve(generation, generation != null ? generation.xml() : null,
+                MediaType.parseMediaType("application/xml;charset=UTF-8"), method, request);
+    }
+
+    @RequestMapping(value = "/products.tsv", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public ResponseEntity<StreamingResponseBody> getTsvFeed(HttpMethod method, HttpServletRequest request) throws IOException {
+        ProductFeedService.Generation generation = productFeedService.current();
+        return serve(generation, generation != null ? generation.tsv() : null, TSV, method, request);
+    }
+
+    private ResponseEntity<StreamingResponseBody> serve(ProductFeedService.Generation generation, Path file,
+                                                        MediaType mediaType, HttpMethod method,
+                                                        HttpServletRequest request) throws IOException {
+        if (generation == null) {
+            // Not built yet
+            return ResponseEntity.notFound().build();
+        }
+        long lastModified;
+        long length;
+        try {
+            lastModified = Files.getLastModifiedTime(file).toMillis();
+            length = Files.size(file);
+        } catch (NoSuchFileException e) {
+            return ResponseEntity.notFound().build();
+        }
+
+        String eTag = "\"feed-" + generation.number() + "\"";
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(mediaType);
+        headers.setETag(eTag);
+        headers.setLastModified(lastModified);
+        headers.setCacheControl("public, max-age=300");
+        if (new ServletWebRequest(request).checkNotModified(eTag, lastModified)) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        }
+        headers.setContentLength(length);
+        if (method == HttpMethod.HEAD) {
+            return new ResponseEntity<>(headers, HttpStatus.OK);
+        }
+        return new ResponseEntity<>(LocalFileBody.of(request, file, 0, length), headers, HttpStatus.OK);
+    }
+}
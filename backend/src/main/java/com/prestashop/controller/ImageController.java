@@ -1,24 +1,47 @@
 package com.prestashop.controller;
 
-import com.prestashop.service.S3Service;
+import com.prestashop.entity.ImageType;
+import com.prestashop.service.ImageCacheService;
+import com.prestashop.service.ImageFingerprint;
+import com.prestashop.service.ImageObjectService;
+import com.prestashop.service.ImageVariantService;
+import com.prestashop.service.ObjectMetadata;
+import com.prestashop.service.ObjectStorage;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.Map;
 
 /**
- * Serves product images from S3 at /images/products/{productId}/{filename}.
+ * Serves product images from the object storage at /images/products/{productId}/{filename}, and
+ * content-addressed images shared between products at /images/objects/{shard}/{filename}.
  * Uses streaming to avoid ResourceHttpRequestHandler's getFile() requirement.
+ * Resized variants are served with ?size={image type name}, e.g. ?size=home_default.
+ * Remote objects are read through ImageCacheService, so repeat requests are served from memory or local
+ * disk; objects in local storage are sent straight from their file with sendfile or FileChannel.transferTo.
+ * <p>
+ * Supports HEAD, conditional requests (If-None-Match / If-Modified-Since -> 304) and single
+ * byte ranges (206). Validators and length come from cached object metadata, so HEAD and 304
+ * responses never fetch the body, and a range that is not cached locally is fetched from storage alone.
+ * A plain GET for an object not cached yet reads headers and body with one storage request.
+ * Content-fingerprinted keys (see ImageFingerprint) are served as immutable for a year.
  */
 @RestController
 @RequestMapping("/images")
@@ -34,23 +57,107 @@ public class ImageController {
             "webp", MediaType.parseMediaType("image/webp")
     );
 
-    private final S3Service s3Service;
+    private final ObjectStorage objectStorage;
+    private final ImageVariantService imageVariantService;
+    private final ImageCacheService imageCacheService;
 
-    @GetMapping("/products/{productId}/{filename}")
+    @RequestMapping(value = "/products/{productId}/{filename}", method = {RequestMethod.GET, RequestMethod.HEAD})
     public ResponseEntity<StreamingResponseBody> getProductImage(
             @PathVariable Long productId,
-            @PathVariable String filename) {
-        String s3Key = PRODUCTS_PREFIX + productId + "/" + filename;
+            @PathVariable String filename,
+            @RequestParam(required = false) String size,
+            @RequestHeader HttpHeaders requestHeaders,
+            HttpMethod method,
+            HttpServletRequest request) {
+        return serve(PRODUCTS_PREFIX + productId + "/" + filename, size, requestHeaders, method, request);
+    }
+
+    /**
+     * Content-addressed objects shared between products (see ImageObjectService).
+     */
+    @RequestMapping(value = "/objects/{shard:[0-9a-f]{2}}/{filename}", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public ResponseEntity<StreamingResponseBody> getImageObject(
+            @PathVariable String shard,
+            @PathVariable String filename,
+            @RequestParam(required = false) String size,
+            @RequestHeader HttpHeaders requestHeaders,
+            HttpMethod method,
+            HttpServletRequest request) {
+        return serve(ImageObjectService.OBJECTS_PREFIX + shard + "/" + filename, size, requestHeaders, method, request);
+    }
+
+    private ResponseEntity<StreamingResponseBody> serve(String s3Key, String size, HttpHeaders requestHeaders,
+                                                        HttpMethod method, HttpServletRequest request) {
+        ImageType type = null;
+        if (size != null && !size.isBlank()) {
+            type = ImageType.fromName(size).orElse(null);
+            if (type == null) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        String objectKey = type != null ? ImageVariantService.variantKey(s3Key, type) : s3Key;
+
         try {
-            InputStream source = s3Service.getObjectContent(s3Key);
-            MediaType mediaType = contentTypeFromFilename(filename);
+            Path file = objectStorage.localPath(objectKey);
+            ImageCacheService.CachedObject cached = null;
+            ObjectMetadata metadata;
+            if (file == null && HttpMethod.GET.equals(method) && !isConditionalOrRange(requestHeaders)) {
+                // The whole body is sent anyway, and its read carries the headers: no separate HEAD on a miss
+                cached = imageCacheService.get(objectKey, contentLoader(s3Key, type));
+                metadata = cached.metadata();
+            } else {
+                metadata = imageCacheService.metadata(objectKey, metadataLoader(s3Key, type));
+            }
             HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(mediaType);
-            headers.setCacheControl("public, max-age=86400");
+            headers.setContentType(contentTypeFromFilename(objectKey));
+            // Fingerprinted keys never change content, so clients need not revalidate them
+            headers.setCacheControl(ImageFingerprint.isFingerprinted(objectKey)
+                    ? ImageFingerprint.IMMUTABLE_CACHE_CONTROL
+                    : "public, max-age=86400");
+            headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+            if (metadata.eTag() != null) {
+                headers.setETag(metadata.eTag());
+            }
+            if (metadata.lastModified() != null) {
+                headers.setLastModified(metadata.lastModified());
+            }
+
+            if (isNotModified(requestHeaders, metadata)) {
+                return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+            }
 
+            long length = metadata.contentLength();
+            HttpRange range = requestedRange(requestHeaders, metadata);
+            if (range != null) {
+                long start = range.getRangeStart(length);
+                long end = Math.min(range.getRangeEnd(length), length - 1);
+                if (length == 0 || start >= length || start > end) {
+                    headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    return new ResponseEntity<>(headers, HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+                }
+                long count = end - start + 1;
+                headers.setContentLength(count);
+                headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+                if (HttpMethod.HEAD.equals(method)) {
+                    return new ResponseEntity<>(headers, HttpStatus.PARTIAL_CONTENT);
+                }
+                StreamingResponseBody body = file != null ? LocalFileBody.of(request, file, start, count) : rangeBody(objectKey, start, end);
+                return new ResponseEntity<>(body, headers, HttpStatus.PARTIAL_CONTENT);
+            }
+
+            headers.setContentLength(length);
+            if (HttpMethod.HEAD.equals(method)) {
+                return new ResponseEntity<>(headers, HttpStatus.OK);
+            }
+            if (file != null) {
+                // Already on local disk: caching it again would only add a copy
+                return new ResponseEntity<>(LocalFileBody.of(request, file, 0, length), headers, HttpStatus.OK);
+            }
+            ImageCacheService.CachedObject content = cached != null
+                    ? cached : imageCacheService.get(objectKey, contentLoader(s3Key, type));
             StreamingResponseBody body = outputStream -> {
-                try (source) {
-                    source.transferTo(outputStream);
+                try (content) {
+                    content.writeTo(outputStream);
                 }
             };
             return new ResponseEntity<>(body, headers, HttpStatus.OK);
@@ -59,6 +166,90 @@ public class ImageController {
         }
     }
 
+    private ImageCacheService.MetadataLoader metadataLoader(String s3Key, ImageType type) {
+        if (type == null) {
+            return () -> objectStorage.headObject(s3Key);
+        }
+        return () -> imageVariantService.getVariantMetadata(s3Key, type);
+    }
+
+    private ImageCacheService.ObjectLoader contentLoader(String s3Key, ImageType type) {
+        if (type == null) {
+            return () -> objectStorage.openObject(s3Key);
+        }
+        return () -> imageVariantService.openVariant(s3Key, type);
+    }
+
+    /** Requests whose answer may be a 304 or a part of the object, so only the headers are read first. */
+    private static boolean isConditionalOrRange(HttpHeaders request) {
+        return request.containsKey(HttpHeaders.RANGE)
+                || request.containsKey(HttpHeaders.IF_NONE_MATCH)
+                || request.containsKey(HttpHeaders.IF_MODIFIED_SINCE);
+    }
+
+    /**
+     * Serves the range from the local cache when the whole object is cached,
+     * otherwise fetches only the requested bytes from storage.
+     */
+    private StreamingResponseBody rangeBody(String objectKey, long start, long end) throws IOException {
+        long count = end - start + 1;
+        ImageCacheService.CachedObject cached = imageCacheService.peek(objectKey);
+        if (cached != null) {
+            return outputStream -> {
+                try (cached) {
+                    cached.writeTo(outputStream, start, count);
+                }
+            };
+        }
+        InputStream source = objectStorage.getObjectRange(objectKey, start, end);
+        return outputStream -> {
+            try (source) {
+                source.transferTo(outputStream);
+            }
+        };
+    }
+
+    private static boolean isNotModified(HttpHeaders request, ObjectMetadata metadata) {
+        try {
+            List<String> ifNoneMatch = request.getIfNoneMatch();
+            if (!ifNoneMatch.isEmpty()) {
+                // If-None-Match takes precedence; If-Modified-Since is ignored when it is present
+                if (metadata.eTag() == null) return false;
+                String eTag = stripWeakPrefix(metadata.eTag());
+                return ifNoneMatch.stream().anyMatch(tag -> "*".equals(tag) || stripWeakPrefix(tag).equals(eTag));
+            }
+            long ifModifiedSince = request.getIfModifiedSince();
+            // HTTP dates have second precision
+            return ifModifiedSince >= 0 && metadata.lastModified() != null
+                    && metadata.lastModified().getEpochSecond() * 1000 <= ifModifiedSince;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the single requested range, or null to serve the full object (no or malformed
+     * Range header, several ranges, or an If-Range validator that no longer matches).
+     */
+    private static HttpRange requestedRange(HttpHeaders request, ObjectMetadata metadata) {
+        String rangeHeader = request.getFirst(HttpHeaders.RANGE);
+        if (rangeHeader == null) return null;
+        String ifRange = request.getFirst(HttpHeaders.IF_RANGE);
+        if (ifRange != null && (metadata.eTag() == null || !ifRange.equals(metadata.eTag()))) {
+            return null;
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String stripWeakPrefix(String eTag) {
+        return eTag.startsWith("W/") ? eTag.substring(2) : eTag;
+    }
+
     private static MediaType contentTypeFromFilename(String filename) {
         int dot = filename.lastIndexOf('.');
         if (dot >= 0) {
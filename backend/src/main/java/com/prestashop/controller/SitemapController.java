@@ -0,0 +1,77 @@
+package com.prestashop.controller;
+
+import com.prestashop.service.SitemapService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+/**
+ * Serves the sitemaps built by SitemapService: the index at /sitemap.xml, from memory, and the
+ * gzipped shards at /sitemaps/{file}. Shard names carry a fingerprint of their contents, so shards
+ * are cached as immutable and sent with sendfile or FileChannel.transferTo.
+ */
+@RestController
+@RequiredArgsConstructor
+public class SitemapController {
+
+    private static final MediaType GZIP = MediaType.parseMediaType("application/gzip");
+
+    private final SitemapService sitemapService;
+
+    @RequestMapping(value = "/sitemap.xml", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public ResponseEntity<byte[]> getIndex(HttpMethod method, HttpServletRequest request) {
+        SitemapService.Index index = sitemapService.index();
+        if (index == null) {
+            // Not built yet
+            return ResponseEntity.notFound().build();
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_XML);
+        headers.setETag(index.eTag());
+        headers.setLastModified(index.lastModified());
+        headers.setCacheControl("public, max-age=300");
+        if (new ServletWebRequest(request).checkNotModified(index.eTag(), index.lastModified())) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        }
+        headers.setContentLength(index.content().length);
+        return new ResponseEntity<>(method == HttpMethod.HEAD ? null : index.content(), headers, HttpStatus.OK);
+    }
+
+    @RequestMapping(value = "/sitemaps/{file:.+}", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public ResponseEntity<StreamingResponseBody> getShard(@PathVariable String file, HttpMethod method,
+                                                          HttpServletRequest request) throws IOException {
+        Path path = sitemapService.shardFile(file);
+        if (path == null) {
+            return ResponseEntity.notFound().build();
+        }
+        long length;
+        try {
+            length = Files.size(path);
+        } catch (NoSuchFileException e) {
+            return ResponseEntity.notFound().build();
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(GZIP);
+        headers.setCacheControl("public, max-age=31536000, immutable");
+        headers.setContentLength(length);
+        if (method == HttpMethod.HEAD) {
+            return new ResponseEntity<>(headers, HttpStatus.OK);
+        }
+        return new ResponseEntity<>(LocalFileBody.of(request, path, 0, length), headers, HttpStatus.OK);
+    }
+}
@@ -0,0 +1,62 @@
+package com.prestashop.controller.admin;
+
+import com.prestashop.dto.ApiResponse;
+import com.prestashop.dto.MigrationJobDto;
+import com.prestashop.service.MigrationJob;
+import com.prestashop.service.MigrationJobService;
+import com.prestashop.service.ProductFeedService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/admin/feed")
+@RequiredArgsConstructor
+@Tag(name = "Admin - Feed", description = "Shopping feed generation")
+@SecurityRequirement(name = "bearerAuth")
+public class AdminFeedController {
+
+    private final ProductFeedService productFeedService;
+    private final MigrationJobService migrationJobService;
+
+    @GetMapping
+    @Operation(summary = "Get feed status", description = "Latest feed generation, its item count and build times")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        ProductFeedService.Generation generation = productFeedService.current();
+        status.put("building", productFeedService.isBuilding());
+        if (generation != null) {
+            status.put("generation", generation.number());
+            status.put("items", generation.items());
+            status.put("startedAt", generation.startedAt());
+            status.put("fullBuildAt", generation.fullBuildAt());
+        }
+        return ResponseEntity.ok(ApiResponse.success(status));
+    }
+
+    @PostMapping("/rebuild")
+    @Operation(summary = "Rebuild feed", description = "Starts a background feed build, incremental unless full=true; poll /api/v1/admin/migration/jobs/{id} for progress")
+    public ResponseEntity<ApiResponse<MigrationJobDto>> rebuild(@RequestParam(defaultValue = "false") boolean full) {
+        if (productFeedService.isBuilding()) {
+            throw new IllegalStateException("The product feed is already being built");
+        }
+        MigrationJob job = migrationJobService.start(MigrationJob.Kind.PRODUCT_FEED, progress -> {
+            try {
+                return productFeedService.build(full, progress);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success(migrationJobService.toDto(job), "Feed build started"));
+    }
+}
@@ -1,16 +1,22 @@
 package com.prestashop.controller.admin;
 
 import com.prestashop.dto.ApiResponse;
+import com.prestashop.dto.MigrationJobDto;
 import com.prestashop.service.ImageMigrationService;
 import com.prestashop.service.LegacyImageMigrationService;
+import com.prestashop.service.MigrationJob;
+import com.prestashop.service.MigrationJobService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -22,31 +28,31 @@ public class AdminMigrationController {
 
     private final LegacyImageMigrationService legacyImageMigrationService;
     private final ImageMigrationService imageMigrationService;
+    private final MigrationJobService migrationJobService;
 
     @PostMapping("/legacy-images")
-    @Operation(summary = "Migrate legacy images", description = "Migrate product images from prestashop-legacy fixtures to prestashop-mod")
-    public ResponseEntity<ApiResponse<Map<String, Object>>> migrateLegacyImages(
+    @Operation(summary = "Migrate legacy images", description = "Starts a background job migrating product images from prestashop-legacy fixtures to prestashop-mod; poll /jobs/{id} for progress")
+    public ResponseEntity<ApiResponse<MigrationJobDto>> migrateLegacyImages(
             @RequestParam(required = false) String path) {
-        try {
-            String basePath = path != null && !path.isBlank()
-                    ? path
-                    : legacyImageMigrationService.resolveLegacyPath();
+        String basePath = path != null && !path.isBlank()
+                ? path
+                : legacyImageMigrationService.resolveLegacyPath();
 
-            if (basePath == null || basePath.isBlank()) {
-                return ResponseEntity.badRequest()
-                        .body(ApiResponse.error("Legacy path not found. Set LEGACY_FIXTURES_PATH or pass path parameter."));
-            }
-
-            int migrated = legacyImageMigrationService.migrateImagesFromLegacy(basePath);
-            return ResponseEntity.ok(ApiResponse.success(Map.of(
-                    "migrated", migrated,
-                    "path", basePath,
-                    "message", "Migrated " + migrated + " images from " + basePath
-            )));
-        } catch (IOException e) {
-            return ResponseEntity.internalServerError()
-                    .body(ApiResponse.error("Migration failed: " + e.getMessage()));
+        if (basePath == null || basePath.isBlank()) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("Legacy path not found. Set LEGACY_FIXTURES_PATH or pass path parameter."));
         }
+
+        MigrationJob job = migrationJobService.start(MigrationJob.Kind.LEGACY_IMAGES, progress -> {
+            try {
+                int migrated = legacyImageMigrationService.migrateImagesFromLegacy(basePath, progress);
+                return "Migrated " + migrated + " images from " + basePath;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success(migrationJobService.toDto(job), "Legacy image migration started"));
     }
 
     @GetMapping("/legacy-path")
@@ -60,21 +66,35 @@ public class AdminMigrationController {
     }
 
     @PostMapping("/images-to-s3")
-    @Operation(summary = "Migrate local images to S3", description = "Uploads all local product images to S3 bucket and updates database with S3 URLs")
-    public ResponseEntity<ApiResponse<Map<String, Object>>> migrateImagesToS3() {
-        try {
-            ImageMigrationService.MigrationResult result = imageMigrationService.migrateLocalImagesToS3();
-            return ResponseEntity.ok(ApiResponse.success(Map.of(
-                    "total", result.total(),
-                    "success", result.success(),
-                    "failed", result.failed(),
-                    "skipped", result.skipped(),
-                    "message", String.format("Migration completed: %d success, %d failed, %d skipped out of %d total",
-                            result.success(), result.failed(), result.skipped(), result.total())
-            )));
-        } catch (Exception e) {
-            return ResponseEntity.internalServerError()
-                    .body(ApiResponse.error("S3 migration failed: " + e.getMessage()));
-        }
+    @Operation(summary = "Migrate local images to S3", description = "Starts a background job uploading all local product images to S3 and updating the database with S3 URLs; poll /jobs/{id} for progress")
+    public ResponseEntity<ApiResponse<MigrationJobDto>> migrateImagesToS3() {
+        MigrationJob job = migrationJobService.start(MigrationJob.Kind.IMAGES_TO_S3, progress -> {
+            ImageMigrationService.MigrationResult result = imageMigrationService.migrateLocalImagesToS3(progress);
+            return String.format("Migration finished: %d success, %d failed, %d skipped out of %d total",
+                    result.success(), result.failed(), result.skipped(), result.total());
+        });
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success(migrationJobService.toDto(job), "S3 image migration started"));
+    }
+
+    @GetMapping("/jobs")
+    @Operation(summary = "List migration jobs", description = "Running and recently finished migration jobs, newest first")
+    public ResponseEntity<ApiResponse<List<MigrationJobDto>>> getJobs() {
+        return ResponseEntity.ok(ApiResponse.success(migrationJobService.getJobs().stream()
+                .map(migrationJobService::toDto)
+                .toList()));
+    }
+
+    @GetMapping("/jobs/{id}")
+    @Operation(summary = "Get migration job", description = "Processed, failed and skipped counts, throughput and ETA of a migration job")
+    public ResponseEntity<ApiResponse<MigrationJobDto>> getJob(@PathVariable String id) {
+        return ResponseEntity.ok(ApiResponse.success(migrationJobService.toDto(migrationJobService.getJob(id))));
+    }
+
+    @DeleteMapping("/jobs/{id}")
+    @Operation(summary = "Cancel migration job", description = "Stops the job after the images in progress; work already done is kept")
+    public ResponseEntity<ApiResponse<MigrationJobDto>> cancelJob(@PathVariable String id) {
+        return ResponseEntity.ok(ApiResponse.success(
+                migrationJobService.toDto(migrationJobService.cancel(id)), "Cancellation requested"));
     }
 }
@@ -1,17 +1,25 @@
 package com.prestashop.controller.admin;
 
 import com.prestashop.dto.*;
+import com.prestashop.service.CatalogFormat;
 import com.prestashop.service.ImageService;
+import com.prestashop.service.MigrationJob;
+import com.prestashop.service.MigrationJobService;
+import com.prestashop.service.ProductExportService;
+import com.prestashop.service.ProductImportService;
 import com.prestashop.service.ProductService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -19,6 +27,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
@@ -30,6 +39,9 @@ public class AdminProductController {
 
     private final ProductService productService;
     private final ImageService imageService;
+    private final ProductImportService productImportService;
+    private final ProductExportService productExportService;
+    private final MigrationJobService migrationJobService;
 
     @GetMapping
     @Operation(summary = "List all products", description = "Get paginated list of all products (including inactive)")
@@ -73,19 +85,41 @@ public class AdminProductController {
     // Bulk operations
 
     @PatchMapping("/bulk/status")
-    @Operation(summary = "Bulk update status", description = "Activate or deactivate multiple products")
-    public ResponseEntity<ApiResponse<Void>> bulkUpdateStatus(
-            @RequestParam List<Long> ids,
-            @RequestParam boolean active) {
-        productService.bulkUpdateStatus(ids, active);
-        return ResponseEntity.ok(ApiResponse.success(null, "Products updated successfully"));
+    @Operation(summary = "Bulk update status", description = "Activate or deactivate multiple products; returns the number updated")
+    public ResponseEntity<ApiResponse<Integer>> bulkUpdateStatus(@Valid @RequestBody ProductBulkStatusRequest request) {
+        int updated = productService.bulkUpdateStatus(request.getIds(), request.getActive());
+        return ResponseEntity.ok(ApiResponse.success(updated, "Products updated successfully"));
     }
 
     @DeleteMapping("/bulk")
-    @Operation(summary = "Bulk delete", description = "Delete multiple products")
-    public ResponseEntity<ApiResponse<Void>> bulkDelete(@RequestParam List<Long> ids) {
-        productService.bulkDelete(ids);
-        return ResponseEntity.ok(ApiResponse.success(null, "Products deleted successfully"));
+    @Operation(summary = "Bulk delete", description = "Delete multiple products with their images and variants; returns the number deleted")
+    public ResponseEntity<ApiResponse<Integer>> bulkDelete(@RequestParam List<Long> ids) {
+        int deleted = productService.bulkDelete(ids);
+        return ResponseEntity.ok(ApiResponse.success(deleted, "Products deleted successfully"));
+    }
+
+    @PostMapping(value = "/import", consumes = { "text/csv", "application/x-ndjson", "application/jsonl" })
+    @Operation(summary = "Import products", description = "Starts a background job importing a CSV or JSON Lines catalog sent as the request body; poll /api/v1/admin/migration/jobs/{id} for progress and row errors")
+    public ResponseEntity<ApiResponse<MigrationJobDto>> importProducts(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body) throws IOException {
+        CatalogFormat format = CatalogFormat.fromContentType(contentType);
+        MigrationJob job = productImportService.startImport(body, format);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success(migrationJobService.toDto(job), "Product import started"));
+    }
+
+    @GetMapping("/export")
+    @Operation(summary = "Export products", description = "Streams every product with its variants, categories and image URLs as CSV or JSON Lines (format=csv|jsonl), in the import format")
+    public void exportProducts(@RequestParam(defaultValue = "csv") String format,
+                               HttpServletResponse response) throws IOException {
+        CatalogFormat catalogFormat = CatalogFormat.fromName(format);
+        response.setContentType(catalogFormat.getMediaType() + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("products" + catalogFormat.getExtension())
+                .build()
+                .toString());
+        productExportService.export(catalogFormat, response.getOutputStream());
     }
 
     // Variant management
@@ -137,6 +171,50 @@ public class AdminProductController {
                 .body(ApiResponse.success(image, "Image uploaded successfully"));
     }
 
+    @PostMapping(value = "/{id}/images/batch", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Upload images",
+            description = "Upload several product images at once; files are sent to S3 in parallel and the result of each file is returned")
+    public ResponseEntity<ApiResponse<List<ImageUploadResultDto>>> uploadImages(
+            @PathVariable Long id,
+            @RequestParam("files") List<MultipartFile> files,
+            @RequestParam(required = false) List<String> legends,
+            @RequestParam(required = false) Integer coverIndex) {
+        List<ImageUploadResultDto> results = imageService.uploadImages(id, files, legends, coverIndex);
+        long uploaded = results.stream().filter(ImageUploadResultDto::isSuccess).count();
+        return ResponseEntity.status(uploaded > 0 ? HttpStatus.CREATED : HttpStatus.OK)
+                .body(ApiResponse.success(results, "Uploaded " + uploaded + " of " + results.size() + " images"));
+    }
+
+    @PostMapping("/{id}/images/upload-url")
+    @Operation(summary = "Request direct upload URL",
+            description = "Issue a presigned S3 PUT URL; upload the file there, then call /images/complete")
+    public ResponseEntity<ApiResponse<ImageUploadUrlDto>> createImageUploadUrl(
+            @PathVariable Long id,
+            @Valid @RequestBody ImageUploadUrlRequest request) {
+        ImageUploadUrlDto upload = imageService.createUploadUrl(id, request);
+        return ResponseEntity.ok(ApiResponse.success(upload));
+    }
+
+    @PostMapping("/{id}/images/complete")
+    @Operation(summary = "Complete direct upload",
+            description = "Verify a file uploaded with a presigned URL and add it to the product images")
+    public ResponseEntity<ApiResponse<ProductImageDto>> completeImageUpload(
+            @PathVariable Long id,
+            @Valid @RequestBody ImageUploadCompleteRequest request) throws IOException {
+        ProductImageDto image = imageService.completeUpload(id, request);
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(ApiResponse.success(image, "Image uploaded successfully"));
+    }
+
+    @PutMapping("/{id}/images/positions")
+    @Operation(summary = "Reorder images", description = "Set the order of a product's images, first to last")
+    public ResponseEntity<ApiResponse<List<ProductImageDto>>> updateImagePositions(
+            @PathVariable Long id,
+            @Valid @RequestBody ImagePositionsRequest request) {
+        List<ProductImageDto> images = imageService.updatePositions(id, request.getImageIds());
+        return ResponseEntity.ok(ApiResponse.success(images, "Image order updated successfully"));
+    }
+
     @DeleteMapping("/images/{imageId}")
     @Operation(summary = "Delete image", description = "Delete a product image")
     public ResponseEntity<ApiResponse<Void>> deleteImage(@PathVariable Long imageId) {
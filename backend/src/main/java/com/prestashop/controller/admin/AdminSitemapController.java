@@ -0,0 +1,45 @@
+package com.prestashop.controller.admin;
+
+import com.prestashop.dto.ApiResponse;
+import com.prestashop.dto.MigrationJobDto;
+import com.prestashop.service.MigrationJob;
+import com.prestashop.service.MigrationJobService;
+import com.prestashop.service.SitemapService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+@RestController
+@RequestMapping("/api/v1/admin/sitemap")
+@RequiredArgsConstructor
+@Tag(name = "Admin - Sitemap", description = "Sitemap generation")
+@SecurityRequirement(name = "bearerAuth")
+public class AdminSitemapController {
+
+    private final SitemapService sitemapService;
+    private final MigrationJobService migrationJobService;
+
+    @PostMapping("/rebuild")
+    @Operation(summary = "Rebuild sitemap", description = "Starts a background job rewriting the sitemap shards whose contents changed; poll /api/v1/admin/migration/jobs/{id} for progress")
+    public ResponseEntity<ApiResponse<MigrationJobDto>> rebuild() {
+        if (sitemapService.isBuilding()) {
+            throw new IllegalStateException("The sitemap is already being built");
+        }
+        MigrationJob job = migrationJobService.start(MigrationJob.Kind.SITEMAP, progress -> {
+            try {
+                return sitemapService.build(progress);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success(migrationJobService.toDto(job), "Sitemap build started"));
+    }
+}
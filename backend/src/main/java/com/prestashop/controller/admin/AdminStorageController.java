@@ -0,0 +1,40 @@
+package com.prestashop.controller.admin;
+
+import com.prestashop.dto.ApiResponse;
+import com.prestashop.service.HedgedReader;
+import com.prestashop.service.ImageCacheService;
+import com.prestashop.service.ObjectStorage;
+import com.prestashop.service.StorageDeletionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/admin/storage")
+@RequiredArgsConstructor
+@Tag(name = "Admin - Storage", description = "Image storage diagnostics")
+@SecurityRequirement(name = "bearerAuth")
+public class AdminStorageController {
+
+    private final ObjectStorage objectStorage;
+    private final ImageCacheService imageCacheService;
+    private final HedgedReader hedgedReader;
+    private final StorageDeletionService storageDeletionService;
+
+    @GetMapping("/stats")
+    @Operation(summary = "Get storage statistics", description = "Image cache hit rates, hedged read counters and pending S3 deletions")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("backend", objectStorage.getClass().getSimpleName());
+        stats.put("cache", imageCacheService.stats());
+        stats.put("hedgedReads", hedgedReader.stats());
+        stats.put("deletions", storageDeletionService.stats());
+        return ResponseEntity.ok(ApiResponse.success(stats));
+    }
+}
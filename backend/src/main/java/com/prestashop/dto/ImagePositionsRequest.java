@@ -0,0 +1,19 @@
+package com.prestashop.dto;
+
+import jakarta.validation.constraints.*;
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * New image order for a product: image ids from first to last.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImagePositionsRequest {
+
+    @NotEmpty(message = "Image ids are required")
+    private List<@NotNull Long> imageIds;
+}
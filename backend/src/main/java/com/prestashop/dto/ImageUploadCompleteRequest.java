@@ -0,0 +1,20 @@
+package com.prestashop.dto;
+
+import jakarta.validation.constraints.*;
+import lombok.*;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImageUploadCompleteRequest {
+
+    @NotBlank(message = "Upload key is required")
+    private String key;
+
+    private String filename;
+
+    private String legend;
+
+    private boolean cover;
+}
@@ -0,0 +1,26 @@
+package com.prestashop.dto;
+
+import lombok.*;
+
+/**
+ * Outcome of one file in a batch image upload: the created image, or the reason it was rejected.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImageUploadResultDto {
+
+    private String filename;
+    private boolean success;
+    private ProductImageDto image;
+    private String error;
+
+    public static ImageUploadResultDto success(String filename, ProductImageDto image) {
+        return ImageUploadResultDto.builder().filename(filename).success(true).image(image).build();
+    }
+
+    public static ImageUploadResultDto failure(String filename, String error) {
+        return ImageUploadResultDto.builder().filename(filename).success(false).error(error).build();
+    }
+}
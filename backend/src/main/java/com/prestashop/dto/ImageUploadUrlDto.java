@@ -0,0 +1,23 @@
+package com.prestashop.dto;
+
+import lombok.*;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Presigned direct-to-S3 upload. The client PUTs the file to {@code uploadUrl} with {@code headers},
+ * then calls the completion endpoint with {@code key}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImageUploadUrlDto {
+
+    private String key;
+    private String uploadUrl;
+    private String method;
+    private Map<String, String> headers;
+    private Instant expiresAt;
+}
@@ -0,0 +1,31 @@
+package com.prestashop.dto;
+
+import lombok.*;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MigrationJobDto {
+
+    private String id;
+    private String kind;
+    private String status;
+    /** Expected number of items, or -1 while unknown. */
+    private long total;
+    private long processed;
+    private long success;
+    private long failed;
+    private long skipped;
+    /** Items per second since the job started. */
+    private double throughput;
+    private Long etaSeconds;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private String message;
+    /** First per-item errors (at most 100), for jobs that report them. */
+    private List<String> errors;
+}
@@ -0,0 +1,22 @@
+package com.prestashop.dto;
+
+import jakarta.validation.constraints.*;
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Products to activate or deactivate in one bulk update.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductBulkStatusRequest {
+
+    @NotEmpty(message = "Product ids are required")
+    private List<@NotNull Long> ids;
+
+    @NotNull(message = "Active flag is required")
+    private Boolean active;
+}
@@ -41,6 +41,9 @@ public class ProductDto {
     private List<CategoryDto> categories;
     private List<ProductImageDto> images;
     private String coverImage;
+    private Integer coverWidth;
+    private Integer coverHeight;
+    private String coverPlaceholder;
     private List<ProductAttributeDto> variants;
     private LocalDateTime dateAdd;
     private LocalDateTime dateUpd;
@@ -96,6 +99,9 @@ public class ProductDto {
                 .inStock(product.getQuantity() > 0)
                 .onSale(product.getOnSale())
                 .coverImage(coverUrl)
+                .coverWidth(coverImage != null ? coverImage.getWidth() : null)
+                .coverHeight(coverImage != null ? coverImage.getHeight() : null)
+                .coverPlaceholder(coverImage != null ? coverImage.getPlaceholder() : null)
                 .defaultCategory(product.getDefaultCategory() != null
                     ? CategoryDto.simple(product.getDefaultCategory()) : null)
                 .build();
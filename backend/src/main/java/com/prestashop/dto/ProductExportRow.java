@@ -0,0 +1,108 @@
+package com.prestashop.dto;
+
+import com.prestashop.entity.Category;
+import com.prestashop.entity.Product;
+import com.prestashop.entity.ProductImage;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * One product of a catalog export. Apart from {@code id} and {@code images}, the properties match
+ * {@link ProductImportRow}, so an export can be imported again.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductExportRow {
+
+    private Long id;
+    private String name;
+    private String description;
+    private String descriptionShort;
+    private String linkRewrite;
+    private BigDecimal price;
+    private BigDecimal wholesalePrice;
+    private Integer quantity;
+    private Integer minimalQuantity;
+    private String reference;
+    private String ean13;
+    private String isbn;
+    private String upc;
+    private BigDecimal weight;
+    private BigDecimal width;
+    private BigDecimal height;
+    private BigDecimal depth;
+    private Boolean active;
+    private String visibility;
+    private String condition;
+    private String productType;
+    private Boolean onSale;
+    private Boolean onlineOnly;
+    private String metaTitle;
+    private String metaDescription;
+    /** Slug of the default category. */
+    private String defaultCategory;
+    /** Category slugs. */
+    private List<String> categories;
+    private List<ProductAttributeCreateDto> variants;
+    /** Image URLs, in display order. */
+    private List<String> images;
+
+    /**
+     * Maps a product whose default category, categories, variants and images are already loaded.
+     */
+    public static ProductExportRow fromEntity(Product product) {
+        return ProductExportRow.builder()
+                .id(product.getId())
+                .name(product.getName())
+                .description(product.getDescription())
+                .descriptionShort(product.getDescriptionShort())
+                .linkRewrite(product.getLinkRewrite())
+                .price(product.getPrice())
+                .wholesalePrice(product.getWholesalePrice())
+                .quantity(product.getQuantity())
+                .minimalQuantity(product.getMinimalQuantity())
+                .reference(product.getReference())
+                .ean13(product.getEan13())
+                .isbn(product.getIsbn())
+                .upc(product.getUpc())
+                .weight(product.getWeight())
+                .width(product.getWidth())
+                .height(product.getHeight())
+                .depth(product.getDepth())
+                .active(product.getActive())
+                .visibility(product.getVisibility().name())
+                .condition(product.getCondition().name())
+                .productType(product.getProductType().name())
+                .onSale(product.getOnSale())
+                .onlineOnly(product.getOnlineOnly())
+                .metaTitle(product.getMetaTitle())
+                .metaDescription(product.getMetaDescription())
+                .defaultCategory(product.getDefaultCategory() != null ? product.getDefaultCategory().getLinkRewrite() : null)
+                .categories(product.getCategories().stream()
+                        .map(Category::getLinkRewrite)
+                        .sorted()
+                        .toList())
+                .variants(product.getAttributes().stream()
+                        .map(attribute -> ProductAttributeCreateDto.builder()
+                                .name(attribute.getName())
+                                .reference(attribute.getReference())
+                                .ean13(attribute.getEan13())
+                                .isbn(attribute.getIsbn())
+                                .upc(attribute.getUpc())
+                                .priceImpact(attribute.getPriceImpact())
+                                .weightImpact(attribute.getWeightImpact())
+                                .quantity(attribute.getQuantity())
+                                .minimalQuantity(attribute.getMinimalQuantity())
+                                .defaultOn(attribute.getDefaultOn())
+                                .build())
+                        .toList())
+                .images(product.getImages().stream()
+                        .map(ProductImage::getUrl)
+                        .toList())
+                .build();
+    }
+}
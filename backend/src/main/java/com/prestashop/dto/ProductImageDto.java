@@ -1,8 +1,12 @@
 package com.prestashop.dto;
 
+import com.prestashop.entity.ImageType;
 import com.prestashop.entity.ProductImage;
 import lombok.*;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -15,6 +19,12 @@ public class ProductImageDto {
     private Integer position;
     private Boolean cover;
     private String legend;
+    private Integer width;
+    private Integer height;
+    /** Tiny preview data URI to show while the image loads. */
+    private String placeholder;
+    /** Resized variant URLs keyed by image type name (e.g. home_default). */
+    private Map<String, String> variants;
 
     public static ProductImageDto fromEntity(ProductImage image) {
         return ProductImageDto.builder()
@@ -24,6 +34,18 @@ public class ProductImageDto {
                 .position(image.getPosition())
                 .cover(image.getCover())
                 .legend(image.getLegend())
+                .width(image.getWidth())
+                .height(image.getHeight())
+                .placeholder(image.getPlaceholder())
+                .variants(variantUrls(image))
                 .build();
     }
+
+    private static Map<String, String> variantUrls(ProductImage image) {
+        Map<String, String> variants = new LinkedHashMap<>();
+        for (ImageType type : ImageType.values()) {
+            variants.put(type.getName(), image.getVariantUrl(type));
+        }
+        return variants;
+    }
 }
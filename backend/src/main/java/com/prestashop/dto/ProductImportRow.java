@@ -0,0 +1,80 @@
+package com.prestashop.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * One product of a catalog import: a JSON Lines object, or a CSV record with these property
+ * names as headers. Categories are given by id or slug.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductImportRow {
+
+    @NotBlank(message = "Product name is required")
+    @Size(max = 255, message = "Name must be less than 255 characters")
+    private String name;
+
+    private String description;
+
+    private String descriptionShort;
+
+    @Size(max = 255, message = "Link rewrite must be less than 255 characters")
+    private String linkRewrite;
+
+    @NotNull(message = "Price is required")
+    @DecimalMin(value = "0.0", message = "Price must be positive")
+    private BigDecimal price;
+
+    @DecimalMin(value = "0.0", message = "Wholesale price must be positive")
+    private BigDecimal wholesalePrice;
+
+    @Min(value = 0, message = "Quantity must be positive")
+    private Integer quantity;
+
+    @Min(value = 1, message = "Minimal quantity must be at least 1")
+    private Integer minimalQuantity;
+
+    @Size(max = 64, message = "Reference must be less than 64 characters")
+    private String reference;
+
+    @Size(max = 13, message = "EAN13 must be 13 characters")
+    private String ean13;
+
+    @Size(max = 32, message = "ISBN must be less than 32 characters")
+    private String isbn;
+
+    @Size(max = 12, message = "UPC must be less than 12 characters")
+    private String upc;
+
+    private BigDecimal weight;
+    private BigDecimal width;
+    private BigDecimal height;
+    private BigDecimal depth;
+
+    private Boolean active;
+    private String visibility;
+    private String condition;
+    private String productType;
+    private Boolean onSale;
+    private Boolean onlineOnly;
+
+    private String metaTitle;
+    private String metaDescription;
+
+    /** Id or slug of the default category. */
+    private String defaultCategory;
+
+    /** Ids or slugs; in CSV, separated by {@code |}. */
+    private List<String> categories;
+
+    /** In CSV, a JSON array. */
+    @Valid
+    private List<ProductAttributeCreateDto> variants;
+}
@@ -0,0 +1,48 @@
+package com.prestashop.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * A content-addressed image object in S3, shared by every ProductImage with the same bytes.
+ * refCount is the number of ProductImage rows pointing at {@code s3Key}; the object is deleted
+ * when it drops to zero.
+ */
+@Entity
+@Table(name = "ps_image_object")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImageObject {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_image_object")
+    private Long id;
+
+    /** Hex SHA-256 of the object content. */
+    @Column(name = "content_hash", nullable = false, unique = true, length = 64)
+    private String contentHash;
+
+    @Column(name = "s3_key", nullable = false, unique = true)
+    private String s3Key;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    @Column(name = "file_size")
+    private Long fileSize;
+
+    @Column(name = "ref_count", nullable = false)
+    @Builder.Default
+    private Integer refCount = 0;
+
+    @CreationTimestamp
+    @Column(name = "date_add", updatable = false)
+    private LocalDateTime dateAdd;
+}
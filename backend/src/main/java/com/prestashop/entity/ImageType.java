@@ -0,0 +1,45 @@
+package com.prestashop.entity;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Named product image sizes, using the same names and bounding boxes as the
+ * legacy PrestaShop ps_image_type presets (e.g. home_default, large_default).
+ */
+public enum ImageType {
+    SMALL_DEFAULT("small_default", 98, 98),
+    CART_DEFAULT("cart_default", 125, 125),
+    HOME_DEFAULT("home_default", 250, 250),
+    MEDIUM_DEFAULT("medium_default", 452, 452),
+    LARGE_DEFAULT("large_default", 800, 800);
+
+    private final String name;
+    private final int width;
+    private final int height;
+
+    ImageType(String name, int width, int height) {
+        this.name = name;
+        this.width = width;
+        this.height = height;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public static Optional<ImageType> fromName(String name) {
+        if (name == null || name.isBlank()) return Optional.empty();
+        return Arrays.stream(values())
+                .filter(type -> type.name.equalsIgnoreCase(name))
+                .findFirst();
+    }
+}
@@ -50,6 +50,17 @@ public class ProductImage {
     @Column(name = "s3_url", length = 512)
     private String s3Url;
 
+    /** Pixel dimensions, read from the image header at upload/migration time. */
+    @Column
+    private Integer width;
+
+    @Column
+    private Integer height;
+
+    /** Tiny blurred preview as a data URI, shown while the image loads. */
+    @Column(columnDefinition = "TEXT")
+    private String placeholder;
+
     public String getUrl() {
         // Return S3 URL if available, otherwise fall back to local path
         if (s3Url != null && !s3Url.isEmpty()) {
@@ -57,4 +68,14 @@ public class ProductImage {
         }
         return "/images/products/" + product.getId() + "/" + filename;
     }
+
+    /**
+     * URL of a resized variant, served (and generated on first request) by ImageController.
+     */
+    public String getVariantUrl(ImageType type) {
+        String path = s3Key != null && !s3Key.isEmpty()
+                ? "/images/" + s3Key
+                : "/images/products/" + product.getId() + "/" + filename;
+        return path + "?size=" + type.getName();
+    }
 }
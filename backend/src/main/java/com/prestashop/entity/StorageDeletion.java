@@ -0,0 +1,52 @@
+package com.prestashop.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Outbox row for an S3 object that must be deleted. Rows are written in the same transaction as
+ * the change that orphaned the object and removed once the object is gone; failed attempts are
+ * retried from {@code nextAttemptAt}.
+ */
+@Entity
+@Table(name = "ps_storage_deletion",
+        indexes = {
+                @Index(name = "idx_storage_deletion_next_attempt", columnList = "next_attempt_at"),
+                @Index(name = "idx_storage_deletion_key_hash", columnList = "key_hash")
+        })
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StorageDeletion {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_storage_deletion")
+    private Long id;
+
+    @Column(name = "s3_key", nullable = false, length = 1024)
+    private String s3Key;
+
+    /** Hex SHA-256 of {@code s3Key}, which is too long to index; deletions are looked up by key through it. */
+    @Column(name = "key_hash", nullable = false, length = 64)
+    private String keyHash;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer attempts = 0;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "last_error", length = 512)
+    private String lastError;
+
+    @CreationTimestamp
+    @Column(name = "date_add", updatable = false)
+    private LocalDateTime dateAdd;
+}
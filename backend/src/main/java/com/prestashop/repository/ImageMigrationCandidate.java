@@ -0,0 +1,6 @@
+package com.prestashop.repository;
+
+/**
+ * Columns the local-to-S3 migration needs from an image row, read without loading managed entities.
+ */
+public record ImageMigrationCandidate(Long id, Long productId, String filename, String mimeType) {}
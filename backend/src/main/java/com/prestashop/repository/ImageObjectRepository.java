@@ -0,0 +1,55 @@
+package com.prestashop.repository;
+
+import com.prestashop.entity.ImageObject;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ImageObjectRepository extends JpaRepository<ImageObject, Long> {
+
+    Optional<ImageObject> findByContentHash(String contentHash);
+
+    Optional<ImageObject> findByS3Key(String s3Key);
+
+    List<ImageObject> findByContentHashIn(Collection<String> contentHashes);
+
+    /**
+     * Inserts the object with one reference, or adds a reference if the hash is already indexed.
+     * Atomic on the unique content_hash key; returns 1 when a row was inserted, 2 when one was updated (MySQL).
+     */
+    @Modifying
+    @Query(value = "INSERT INTO ps_image_object (content_hash, s3_key, content_type, file_size, ref_count, date_add) " +
+                   "VALUES (:contentHash, :s3Key, :contentType, :fileSize, 1, NOW()) " +
+                   "ON DUPLICATE KEY UPDATE ref_count = ref_count + 1", nativeQuery = true)
+    int acquire(@Param("contentHash") String contentHash, @Param("s3Key") String s3Key,
+                @Param("contentType") String contentType, @Param("fileSize") Long fileSize);
+
+    @Modifying
+    @Query("UPDATE ImageObject o SET o.refCount = o.refCount - 1 WHERE o.s3Key = :s3Key AND o.refCount > 0")
+    int release(@Param("s3Key") String s3Key);
+
+    /** Removes the index row only if nothing re-acquired it; returns 1 when the caller may delete the object. */
+    @Modifying
+    @Query("DELETE FROM ImageObject o WHERE o.s3Key = :s3Key AND o.refCount = 0")
+    int deleteIfUnreferenced(@Param("s3Key") String s3Key);
+
+    /** Drops {@code count} references from each of the given objects in one statement. */
+    @Modifying
+    @Query(value = "UPDATE ps_image_object SET ref_count = GREATEST(ref_count - :count, 0) WHERE s3_key IN :s3Keys",
+           nativeQuery = true)
+    int releaseAll(@Param("s3Keys") Collection<String> s3Keys, @Param("count") int count);
+
+    @Query("SELECT o.s3Key FROM ImageObject o WHERE o.s3Key IN :s3Keys AND o.refCount = 0")
+    List<String> findUnreferencedS3Keys(@Param("s3Keys") Collection<String> s3Keys);
+
+    @Modifying
+    @Query("DELETE FROM ImageObject o WHERE o.s3Key IN :s3Keys AND o.refCount = 0")
+    int deleteUnreferenced(@Param("s3Keys") Collection<String> s3Keys);
+}
@@ -1,17 +1,19 @@
 package com.prestashop.repository;
 
 import com.prestashop.entity.ProductImage;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ProductImageRepository extends JpaRepository<ProductImage, Long> {
+public interface ProductImageRepository extends JpaRepository<ProductImage, Long>, ProductImageRepositoryCustom {
 
     List<ProductImage> findByProductIdOrderByPositionAsc(Long productId);
 
@@ -24,9 +26,43 @@ public interface ProductImageRepository extends JpaRepository<ProductImage, Long
     @Query("UPDATE ProductImage pi SET pi.cover = false WHERE pi.product.id = :productId")
     void clearCoverByProductId(@Param("productId") Long productId);
 
+    /** Makes the given image the product's only cover, in one statement. */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE ProductImage pi SET pi.cover = CASE WHEN pi.id = :imageId THEN true ELSE false END " +
+           "WHERE pi.product.id = :productId")
+    int assignCover(@Param("productId") Long productId, @Param("imageId") Long imageId);
+
+    /** Makes the product's first image (by position) the cover, in one statement. */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE ps_image SET cover = 1 WHERE id_product = :productId ORDER BY position, id_image LIMIT 1",
+           nativeQuery = true)
+    int assignFirstAsCover(@Param("productId") Long productId);
+
     @Query("SELECT COUNT(pi) FROM ProductImage pi WHERE pi.product.id = :productId")
     long countByProductId(@Param("productId") Long productId);
 
+    @Query("SELECT COUNT(pi) FROM ProductImage pi WHERE pi.product.id = :productId AND pi.id IN :imageIds")
+    long countByProductIdAndIdIn(@Param("productId") Long productId, @Param("imageIds") Collection<Long> imageIds);
+
+    /** S3 keys of every stored image of the given products (one per image row, so shared keys repeat). */
+    @Query("SELECT pi.s3Key FROM ProductImage pi WHERE pi.product.id IN :productIds " +
+           "AND pi.s3Key IS NOT NULL AND pi.s3Key <> ''")
+    List<String> findS3KeysByProductIdIn(@Param("productIds") Collection<Long> productIds);
+
+    /** Ids (among the given products) that already have at least one image, in one grouped query. */
+    @Query("SELECT DISTINCT pi.product.id FROM ProductImage pi WHERE pi.product.id IN :productIds")
+    List<Long> findProductIdsWithImages(@Param("productIds") Collection<Long> productIds);
+
     @Query("SELECT pi FROM ProductImage pi WHERE pi.s3Url IS NULL OR pi.s3Url = ''")
     List<ProductImage> findImagesWithoutS3Url();
+
+    @Query("SELECT COUNT(pi) FROM ProductImage pi WHERE pi.s3Url IS NULL OR pi.s3Url = ''")
+    long countImagesWithoutS3Url();
+
+    /**
+     * Keyset page of images without S3 URLs, ordered by id; pass the last id seen to get the next page.
+     */
+    @Query("SELECT new com.prestashop.repository.ImageMigrationCandidate(pi.id, pi.product.id, pi.filename, pi.mimeType) " +
+           "FROM ProductImage pi WHERE (pi.s3Url IS NULL OR pi.s3Url = '') AND pi.id > :afterId ORDER BY pi.id")
+    List<ImageMigrationCandidate> findMigrationCandidates(@Param("afterId") Long afterId, Pageable pageable);
 }
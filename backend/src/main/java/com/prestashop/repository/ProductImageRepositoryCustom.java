@@ -0,0 +1,23 @@
+package com.prestashop.repository;
+
+import com.prestashop.entity.ProductImage;
+
+import java.util.List;
+
+/**
+ * Bulk statements on ps_image that JPA would otherwise issue row by row.
+ */
+public interface ProductImageRepositoryCustom {
+
+    /**
+     * Inserts all images in one JDBC batch and sets their generated ids.
+     * Every image must reference a product and have its position and cover already assigned.
+     */
+    void insertAll(List<ProductImage> images);
+
+    /**
+     * Moves the given images of a product to positions 0..n-1 in list order with one UPDATE.
+     * The product's other images keep their relative order after them.
+     */
+    void reorder(Long productId, List<Long> imageIds);
+}
@@ -0,0 +1,81 @@
+package com.prestashop.repository;
+
+import com.prestashop.entity.ProductImage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JDBC implementation of {@link ProductImageRepositoryCustom}, picked up by Spring Data as a
+ * fragment of {@link ProductImageRepository}. Statements run on the connection of the current
+ * transaction, so they commit or roll back together with the surrounding JPA work.
+ */
+@RequiredArgsConstructor
+public class ProductImageRepositoryImpl implements ProductImageRepositoryCustom {
+
+    private static final String INSERT_IMAGE =
+            "INSERT INTO ps_image (id_product, position, cover, filename, original_filename, legend, mime_type, " +
+            "file_size, s3_key, s3_url, width, height, placeholder) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void insertAll(List<ProductImage> images) {
+        if (images.isEmpty()) {
+            return;
+        }
+        // IDENTITY ids keep Hibernate from batching inserts, so the batch is written directly
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_IMAGE, Statement.RETURN_GENERATED_KEYS)) {
+                for (ProductImage image : images) {
+                    statement.setLong(1, image.getProduct().getId());
+                    statement.setInt(2, image.getPosition());
+                    statement.setBoolean(3, image.getCover());
+                    statement.setString(4, image.getFilename());
+                    statement.setString(5, image.getOriginalFilename());
+                    statement.setString(6, image.getLegend());
+                    statement.setString(7, image.getMimeType());
+                    statement.setObject(8, image.getFileSize(), Types.BIGINT);
+                    statement.setString(9, image.getS3Key());
+                    statement.setString(10, image.getS3Url());
+                    statement.setObject(11, image.getWidth(), Types.INTEGER);
+                    statement.setObject(12, image.getHeight(), Types.INTEGER);
+                    statement.setString(13, image.getPlaceholder());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    for (int i = 0; i < images.size() && keys.next(); i++) {
+                        images.get(i).setId(keys.getLong(1));
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void reorder(Long productId, List<Long> imageIds) {
+        if (imageIds.isEmpty()) {
+            return;
+        }
+        StringBuilder sql = new StringBuilder("UPDATE ps_image SET position = CASE id_image");
+        List<Object> args = new ArrayList<>(imageIds.size() * 2 + 2);
+        for (int i = 0; i < imageIds.size(); i++) {
+            sql.append(" WHEN ? THEN ?");
+            args.add(imageIds.get(i));
+            args.add(i);
+        }
+        sql.append(" ELSE ? + position END WHERE id_product = ?");
+        args.add(imageIds.size());
+        args.add(productId);
+        jdbcTemplate.update(sql.toString(), args.toArray());
+    }
+}
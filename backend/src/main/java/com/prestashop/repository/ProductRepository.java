@@ -1,26 +1,42 @@
 package com.prestashop.repository;
 
 import com.prestashop.entity.Product;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product> {
+public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product>,
+        ProductRepositoryCustom {
 
     Optional<Product> findByLinkRewrite(String linkRewrite);
 
+    List<Product> findByLinkRewriteIn(Collection<String> linkRewrites);
+
     /** Load product with images for detail/listing so cover image URL is always fresh after updates. */
     @Query("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.images WHERE p.id = :id")
     Optional<Product> findByIdWithImages(@Param("id") Long id);
 
+    /**
+     * Loads the product with a row lock held until the transaction ends (SELECT ... FOR UPDATE),
+     * serializing writers that read and then extend the product's child rows, e.g. image positions.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Product p WHERE p.id = :id")
+    Optional<Product> findByIdForUpdate(@Param("id") Long id);
+
     /** Load product with images for PDP so image URLs are always fresh after updates. */
     @Query("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.images WHERE p.linkRewrite = :linkRewrite")
     Optional<Product> findByLinkRewriteWithImages(@Param("linkRewrite") String linkRewrite);
@@ -51,4 +67,48 @@ public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpec
 
     @Query("SELECT COUNT(p) FROM Product p WHERE p.active = true")
     long countActive();
+
+    /** Keyset page for exports: the next products after {@code afterId}, by id, with their default category. */
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.defaultCategory WHERE p.id > :afterId ORDER BY p.id")
+    List<Product> findPageAfter(@Param("afterId") long afterId, Pageable pageable);
+
+    /**
+     * Keyset page for the product feed: active, visible products after {@code afterId}, by id. With a
+     * {@code since} time, only those updated since then or whose specific prices started or ended
+     * between {@code since} and {@code now} (which changes their effective price without an update).
+     */
+    @Query("SELECT p FROM Product p WHERE p.id > :afterId AND p.active = true " +
+           "AND p.visibility IN ('BOTH', 'CATALOG', 'SEARCH') " +
+           "AND (:since IS NULL OR p.dateUpd >= :since OR EXISTS (SELECT sp.id FROM SpecificPrice sp " +
+           "WHERE sp.product = p AND ((sp.fromDate > :since AND sp.fromDate <= :now) " +
+           "OR (sp.toDate > :since AND sp.toDate <= :now)))) " +
+           "ORDER BY p.id")
+    List<Product> findFeedPage(@Param("afterId") long afterId, @Param("since") LocalDateTime since,
+                               @Param("now") LocalDateTime now, Pageable pageable);
+
+    // Initialize one collection each for products already in the persistence context; fetching
+    // several bags in one query is not allowed and would multiply the rows
+
+    @Query("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.categories WHERE p.id IN :ids")
+    List<Product> fetchCategories(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.attributes WHERE p.id IN :ids")
+    List<Product> fetchAttributes(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.images WHERE p.id IN :ids")
+    List<Product> fetchImages(@Param("ids") Collection<Long> ids);
+
+    /** Activates or deactivates the given products in one statement; returns the number of rows changed. */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product p SET p.active = :active, p.dateUpd = :dateUpd WHERE p.id IN :ids")
+    int updateActiveByIdIn(@Param("ids") Collection<Long> ids, @Param("active") boolean active,
+                           @Param("dateUpd") LocalDateTime dateUpd);
+
+    /**
+     * Sets date_upd for a change stored outside the product row (variants, cover image), so readers
+     * that pick up changes by date_upd, like the incremental feed, see it.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Product p SET p.dateUpd = :dateUpd WHERE p.id = :id")
+    int touch(@Param("id") Long id, @Param("dateUpd") LocalDateTime dateUpd);
 }
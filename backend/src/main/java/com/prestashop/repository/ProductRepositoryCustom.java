@@ -0,0 +1,27 @@
+package com.prestashop.repository;
+
+import com.prestashop.entity.Product;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Bulk statements on ps_product that JPA would otherwise issue row by row.
+ */
+public interface ProductRepositoryCustom {
+
+    /**
+     * Deletes the given products with their specific prices, variants, images and category links,
+     * one {@code DELETE ... WHERE id_product IN (...)} per table in dependency order. Returns the
+     * number of products deleted. The statements bypass the persistence context, so callers must
+     * not hold loaded instances of these products; stored image objects are not touched.
+     */
+    int deleteAllByIdIn(Collection<Long> ids);
+
+    /**
+     * Inserts all products, with their variants and category links, in one JDBC batch per table
+     * and sets the generated product and variant ids. Only category ids are read from the linked
+     * categories; images and specific prices are not written.
+     */
+    void insertAll(List<Product> products);
+}
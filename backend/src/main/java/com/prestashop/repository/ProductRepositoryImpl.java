@@ -0,0 +1,179 @@
+package com.prestashop.repository;
+
+import com.prestashop.entity.Category;
+import com.prestashop.entity.Product;
+import com.prestashop.entity.ProductAttribute;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * JDBC implementation of {@link ProductRepositoryCustom}, picked up by Spring Data as a
+ * fragment of {@link ProductRepository}. Statements run on the connection of the current
+ * transaction, so they commit or roll back together with the surrounding JPA work.
+ */
+@RequiredArgsConstructor
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+    /** Child tables first: specific prices reference variants, everything references the product. */
+    private static final List<String> DELETE_CHILDREN = List.of(
+            "DELETE FROM ps_specific_price WHERE id_product IN (%s)",
+            "DELETE FROM ps_product_attribute WHERE id_product IN (%s)",
+            "DELETE FROM ps_image WHERE id_product IN (%s)",
+            "DELETE FROM ps_category_product WHERE id_product IN (%s)");
+
+    private static final String DELETE_PRODUCTS = "DELETE FROM ps_product WHERE id_product IN (%s)";
+
+    private static final String INSERT_PRODUCT =
+            "INSERT INTO ps_product (name, description, description_short, link_rewrite, price, wholesale_price, " +
+            "ecotax, quantity, minimal_quantity, low_stock_threshold, reference, ean13, isbn, upc, weight, width, " +
+            "height, depth, active, visibility, product_condition, product_type, on_sale, online_only, " +
+            "available_for_order, show_price, meta_title, meta_description, id_category_default, date_add, date_upd) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_ATTRIBUTE =
+            "INSERT INTO ps_product_attribute (id_product, name, reference, ean13, isbn, upc, mpn, price_impact, " +
+            "weight_impact, quantity, minimal_quantity, low_stock_threshold, default_on) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_CATEGORY_LINK =
+            "INSERT INTO ps_category_product (id_product, id_category) VALUES (?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int deleteAllByIdIn(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        Object[] args = ids.toArray();
+        for (String statement : DELETE_CHILDREN) {
+            jdbcTemplate.update(statement.formatted(placeholders), args);
+        }
+        return jdbcTemplate.update(DELETE_PRODUCTS.formatted(placeholders), args);
+    }
+
+    @Override
+    public void insertAll(List<Product> products) {
+        if (products.isEmpty()) {
+            return;
+        }
+        // IDENTITY ids keep Hibernate from batching inserts, so the batches are written directly
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            insertProducts(connection, products);
+            insertAttributes(connection, products);
+            insertCategoryLinks(connection, products);
+            return null;
+        });
+    }
+
+    private void insertProducts(Connection connection, List<Product> products) throws SQLException {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_PRODUCT, Statement.RETURN_GENERATED_KEYS)) {
+            for (Product product : products) {
+                statement.setString(1, product.getName());
+                statement.setString(2, product.getDescription());
+                statement.setString(3, product.getDescriptionShort());
+                statement.setString(4, product.getLinkRewrite());
+                statement.setBigDecimal(5, product.getPrice());
+                statement.setBigDecimal(6, product.getWholesalePrice());
+                statement.setBigDecimal(7, product.getEcotax());
+                statement.setInt(8, product.getQuantity());
+                statement.setObject(9, product.getMinimalQuantity(), Types.INTEGER);
+                statement.setObject(10, product.getLowStockThreshold(), Types.INTEGER);
+                statement.setString(11, product.getReference());
+                statement.setString(12, product.getEan13());
+                statement.setString(13, product.getIsbn());
+                statement.setString(14, product.getUpc());
+                statement.setBigDecimal(15, product.getWeight());
+                statement.setBigDecimal(16, product.getWidth());
+                statement.setBigDecimal(17, product.getHeight());
+                statement.setBigDecimal(18, product.getDepth());
+                statement.setBoolean(19, product.getActive());
+                statement.setString(20, product.getVisibility().name());
+                statement.setString(21, product.getCondition().name());
+                statement.setString(22, product.getProductType().name());
+                statement.setObject(23, product.getOnSale(), Types.BOOLEAN);
+                statement.setObject(24, product.getOnlineOnly(), Types.BOOLEAN);
+                statement.setObject(25, product.getAvailableForOrder(), Types.BOOLEAN);
+                statement.setObject(26, product.getShowPrice(), Types.BOOLEAN);
+                statement.setString(27, product.getMetaTitle());
+                statement.setString(28, product.getMetaDescription());
+                statement.setObject(29, product.getDefaultCategory() != null ? product.getDefaultCategory().getId() : null,
+                        Types.BIGINT);
+                statement.setTimestamp(30, now);
+                statement.setTimestamp(31, now);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            try (ResultSet keys = statement.getGeneratedKeys()) {
+                for (int i = 0; i < products.size() && keys.next(); i++) {
+                    products.get(i).setId(keys.getLong(1));
+                }
+            }
+        }
+    }
+
+    private void insertAttributes(Connection connection, List<Product> products) throws SQLException {
+        List<ProductAttribute> attributes = new ArrayList<>();
+        products.forEach(product -> attributes.addAll(product.getAttributes()));
+        if (attributes.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_ATTRIBUTE, Statement.RETURN_GENERATED_KEYS)) {
+            for (ProductAttribute attribute : attributes) {
+                statement.setLong(1, attribute.getProduct().getId());
+                statement.setString(2, attribute.getName());
+                statement.setString(3, attribute.getReference());
+                statement.setString(4, attribute.getEan13());
+                statement.setString(5, attribute.getIsbn());
+                statement.setString(6, attribute.getUpc());
+                statement.setString(7, attribute.getMpn());
+                statement.setBigDecimal(8, attribute.getPriceImpact());
+                statement.setBigDecimal(9, attribute.getWeightImpact());
+                statement.setInt(10, attribute.getQuantity());
+                statement.setObject(11, attribute.getMinimalQuantity(), Types.INTEGER);
+                statement.setObject(12, attribute.getLowStockThreshold(), Types.INTEGER);
+                statement.setObject(13, attribute.getDefaultOn(), Types.BOOLEAN);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            try (ResultSet keys = statement.getGeneratedKeys()) {
+                for (int i = 0; i < attributes.size() && keys.next(); i++) {
+                    attributes.get(i).setId(keys.getLong(1));
+                }
+            }
+        }
+    }
+
+    private void insertCategoryLinks(Connection connection, List<Product> products) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_CATEGORY_LINK)) {
+            int links = 0;
+            for (Product product : products) {
+                for (Category category : product.getCategories()) {
+                    statement.setLong(1, product.getId());
+                    statement.setLong(2, category.getId());
+                    statement.addBatch();
+                    links++;
+                }
+            }
+            if (links > 0) {
+                statement.executeBatch();
+            }
+        }
+    }
+}
@@ -7,6 +7,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,6 +26,16 @@ public interface SpecificPriceRepository extends JpaRepository<SpecificPrice, Lo
             @Param("now") LocalDateTime now,
             @Param("quantity") Integer quantity);
 
+    /** Specific prices of the given products that apply now to a single unit, highest threshold first. */
+    @Query("SELECT sp FROM SpecificPrice sp WHERE sp.product.id IN :productIds " +
+           "AND (sp.fromDate IS NULL OR sp.fromDate <= :now) " +
+           "AND (sp.toDate IS NULL OR sp.toDate >= :now) " +
+           "AND sp.fromQuantity <= 1 " +
+           "ORDER BY sp.fromQuantity DESC")
+    List<SpecificPrice> findActiveByProductIdIn(
+            @Param("productIds") Collection<Long> productIds,
+            @Param("now") LocalDateTime now);
+
     @Query("SELECT sp FROM SpecificPrice sp WHERE sp.product.id = :productId " +
            "AND sp.productAttribute.id = :attributeId " +
            "AND (sp.fromDate IS NULL OR sp.fromDate <= :now) " +
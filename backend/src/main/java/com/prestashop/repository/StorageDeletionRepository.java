@@ -0,0 +1,32 @@
+package com.prestashop.repository;
+
+import com.prestashop.entity.StorageDeletion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface StorageDeletionRepository extends JpaRepository<StorageDeletion, Long> {
+
+    /**
+     * Locks the oldest deletions whose next attempt is due until the current transaction ends,
+     * skipping rows another worker has already claimed.
+     */
+    @Query(value = "SELECT * FROM ps_storage_deletion WHERE next_attempt_at <= :now ORDER BY id_storage_deletion " +
+                   "LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<StorageDeletion> claimDue(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    /** Deletes by the indexed key hash, so only the matching rows are scanned and locked. */
+    @Modifying
+    @Query("DELETE FROM StorageDeletion d WHERE d.keyHash IN :keyHashes")
+    int deleteByKeyHashIn(@Param("keyHashes") Collection<String> keyHashes);
+
+    @Query("SELECT COUNT(d) FROM StorageDeletion d WHERE d.attempts > 0")
+    long countRetrying();
+}
@@ -0,0 +1,56 @@
+package com.prestashop.service;
+
+import java.util.Locale;
+
+/**
+ * File formats of catalog imports and exports.
+ */
+public enum CatalogFormat {
+    CSV("text/csv", ".csv"),
+    JSONL("application/x-ndjson", ".jsonl");
+
+    private final String mediaType;
+    private final String extension;
+
+    CatalogFormat(String mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * @throws IllegalArgumentException for anything but CSV or JSON Lines
+     */
+    public static CatalogFormat fromContentType(String contentType) {
+        String type = contentType != null ? contentType.toLowerCase(Locale.ROOT) : "";
+        if (type.startsWith("text/csv")) {
+            return CSV;
+        }
+        if (type.startsWith("application/x-ndjson") || type.startsWith("application/jsonl")) {
+            return JSONL;
+        }
+        throw new IllegalArgumentException("Unsupported catalog format: " + contentType
+                + " (use text/csv or application/x-ndjson)");
+    }
+
+    /**
+     * Parses a {@code format} request parameter ({@code csv} or {@code jsonl}).
+     *
+     * @throws IllegalArgumentException for any other value
+     */
+    public static CatalogFormat fromName(String name) {
+        for (CatalogFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported catalog format: " + name + " (use csv or jsonl)");
+    }
+}
@@ -17,6 +17,7 @@ import java.util.stream.Collectors;
 public class CategoryService {
 
     private final CategoryRepository categoryRepository;
+    private final SlugAllocator slugAllocator;
 
     @Transactional(readOnly = true)
     public List<CategoryDto> getCategoryTree() {
@@ -53,55 +54,43 @@ public class CategoryService {
                 .collect(Collectors.toList());
     }
 
-    @Transactional
     public CategoryDto createCategory(CategoryCreateDto createDto) {
-        Category category = new Category();
-        category.setName(createDto.getName());
-        category.setDescription(createDto.getDescription());
-        category.setActive(createDto.getActive() != null ? createDto.getActive() : true);
-        category.setMetaTitle(createDto.getMetaTitle());
-        category.setMetaDescription(createDto.getMetaDescription());
-
-        // Generate link_rewrite
-        if (createDto.getLinkRewrite() != null && !createDto.getLinkRewrite().isBlank()) {
-            category.setLinkRewrite(createDto.getLinkRewrite());
-        } else {
-            category.setLinkRewrite(generateLinkRewrite(createDto.getName()));
-        }
-
-        // Ensure unique link_rewrite
-        String baseSlug = category.getLinkRewrite();
-        int counter = 1;
-        while (categoryRepository.existsByLinkRewrite(category.getLinkRewrite())) {
-            category.setLinkRewrite(baseSlug + "-" + counter++);
-        }
-
-        // Set parent
-        if (createDto.getParentId() != null) {
-            Category parent = categoryRepository.findById(createDto.getParentId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Parent category not found"));
-            category.setParent(parent);
-            category.setLevelDepth(parent.getLevelDepth() + 1);
-        } else {
-            category.setLevelDepth(0);
-            category.setIsRootCategory(true);
-        }
-
-        // Set position
-        if (createDto.getPosition() != null) {
-            category.setPosition(createDto.getPosition());
-        } else {
-            Integer maxPosition;
+        String baseSlug = SlugAllocator.baseSlug(createDto.getLinkRewrite(), createDto.getName());
+        return slugAllocator.insert(SlugAllocator.Scope.CATEGORY, baseSlug, slug -> {
+            Category category = new Category();
+            category.setName(createDto.getName());
+            category.setDescription(createDto.getDescription());
+            category.setActive(createDto.getActive() != null ? createDto.getActive() : true);
+            category.setMetaTitle(createDto.getMetaTitle());
+            category.setMetaDescription(createDto.getMetaDescription());
+            category.setLinkRewrite(slug);
+
+            // Set parent
             if (createDto.getParentId() != null) {
-                maxPosition = categoryRepository.findMaxPositionByParentId(createDto.getParentId());
+                Category parent = categoryRepository.findById(createDto.getParentId())
+                        .orElseThrow(() -> new ResourceNotFoundException("Parent category not found"));
+                category.setParent(parent);
+                category.setLevelDepth(parent.getLevelDepth() + 1);
             } else {
-                maxPosition = categoryRepository.findMaxPositionForRootCategories();
+                category.setLevelDepth(0);
+                category.setIsRootCategory(true);
             }
-            category.setPosition(maxPosition != null ? maxPosition + 1 : 0);
-        }
 
-        category = categoryRepository.save(category);
-        return CategoryDto.fromEntity(category);
+            // Set position
+            if (createDto.getPosition() != null) {
+                category.setPosition(createDto.getPosition());
+            } else {
+                Integer maxPosition;
+                if (createDto.getParentId() != null) {
+                    maxPosition = categoryRepository.findMaxPositionByParentId(createDto.getParentId());
+                } else {
+                    maxPosition = categoryRepository.findMaxPositionForRootCategories();
+                }
+                category.setPosition(maxPosition != null ? maxPosition + 1 : 0);
+            }
+
+            return CategoryDto.fromEntity(categoryRepository.saveAndFlush(category));
+        });
     }
 
     @Transactional
@@ -171,12 +160,4 @@ public class CategoryService {
 
         categoryRepository.delete(category);
     }
-
-    private String generateLinkRewrite(String name) {
-        return name.toLowerCase()
-                .replaceAll("[^a-z0-9\\s-]", "")
-                .replaceAll("\\s+", "-")
-                .replaceAll("-+", "-")
-                .replaceAll("^-|-$", "");
-    }
 }
@@ -0,0 +1,45 @@
+package com.prestashop.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads one slice of a file with positional reads, so several slices of the same file can be
+ * streamed concurrently (multipart upload parts, ranged reads from local storage).
+ */
+final class FileRangeInputStream extends InputStream {
+    private final FileChannel channel;
+    private final long end;
+    private long position;
+
+    FileRangeInputStream(Path path, long offset, long length) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.position = offset;
+        this.end = offset + length;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int off, int len) throws IOException {
+        if (position >= end) return -1;
+        int count = (int) Math.min(len, end - position);
+        int read = channel.read(ByteBuffer.wrap(buffer, off, count), position);
+        if (read < 0) return -1;
+        position += read;
+        return read;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,208 @@
+package com.prestashop.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.core.ResponseInputStream;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hedged S3 GETs. A blocking getObject returns once the response headers arrive, so its
+ * duration is the time to first byte. When the first request has not returned within the
+ * observed p95 of that time, a second identical request is sent and whichever answers first
+ * is used; the other is aborted when it arrives. Hedges are capped at a fraction of all reads
+ * so a slow S3 cannot double the request load.
+ */
+@Component
+public class HedgedReader {
+    private Logger LOGGER = LoggerFactory.getLogger(getClass());
+
+    private static final int SAMPLES = 512;
+    private static final int MIN_SAMPLES = 64;
+    private static final int RECOMPUTE_EVERY = 32;
+    /** Hedge tokens that may accumulate, allowing short bursts above the steady rate. */
+    private static final double MAX_TOKENS = 10;
+
+    @Value("${aws.s3.hedge.enabled:false}")
+    private boolean enabled;
+
+    @Value("${aws.s3.hedge.initial-delay-ms:100}")
+    private long initialDelayMs;
+
+    @Value("${aws.s3.hedge.min-delay-ms:10}")
+    private long minDelayMs;
+
+    @Value("${aws.s3.hedge.max-rate:0.05}")
+    private double maxRate;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final long[] latencies = new long[SAMPLES];
+    private int sampleCount;
+    private int sampleIndex;
+    private volatile long hedgeDelayNanos = -1;
+    private double tokens;
+
+    private final AtomicLong reads = new AtomicLong();
+    private final AtomicLong hedgesIssued = new AtomicLong();
+    private final AtomicLong hedgesWon = new AtomicLong();
+    private final AtomicLong hedgesRateLimited = new AtomicLong();
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Runs the GET, hedging it when enabled. Runtime exceptions from the SDK (e.g. NoSuchKeyException)
+     * are rethrown unchanged so callers can map them as before.
+     */
+    public <T> ResponseInputStream<T> read(Callable<ResponseInputStream<T>> request) throws IOException {
+        if (!enabled) {
+            return call(request);
+        }
+        reads.incrementAndGet();
+        addToken();
+
+        CompletableFuture<ResponseInputStream<T>> primary = start(request);
+        try {
+            return primary.get(hedgeDelayNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            if (!tryAcquireHedge()) {
+                hedgesRateLimited.incrementAndGet();
+                return await(primary);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading from S3");
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+
+        hedgesIssued.incrementAndGet();
+        CompletableFuture<ResponseInputStream<T>> hedge = start(request);
+        CompletableFuture<ResponseInputStream<T>> winner = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        race(primary, winner, failures, false);
+        race(hedge, winner, failures, true);
+        return await(winner);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("reads", reads.get());
+        stats.put("hedgeDelayMs", TimeUnit.NANOSECONDS.toMillis(hedgeDelayNanos()));
+        stats.put("hedgesIssued", hedgesIssued.get());
+        stats.put("hedgesWon", hedgesWon.get());
+        stats.put("hedgesRateLimited", hedgesRateLimited.get());
+        return stats;
+    }
+
+    private <T> CompletableFuture<ResponseInputStream<T>> start(Callable<ResponseInputStream<T>> request) {
+        return CompletableFuture.supplyAsync(() -> {
+            long started = System.nanoTime();
+            try {
+                ResponseInputStream<T> response = request.call();
+                record(System.nanoTime() - started);
+                return response;
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    private <T> void race(CompletableFuture<ResponseInputStream<T>> attempt, CompletableFuture<ResponseInputStream<T>> winner,
+                          AtomicInteger failures, boolean isHedge) {
+        attempt.whenComplete((response, error) -> {
+            if (error == null) {
+                if (winner.complete(response)) {
+                    if (isHedge) hedgesWon.incrementAndGet();
+                } else {
+                    // The loser's connection is released without draining its body
+                    response.abort();
+                }
+            } else if (failures.incrementAndGet() == 2) {
+                winner.completeExceptionally(error);
+            }
+        });
+    }
+
+    private <T> ResponseInputStream<T> call(Callable<ResponseInputStream<T>> request) throws IOException {
+        try {
+            return request.call();
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    private <T> ResponseInputStream<T> await(CompletableFuture<ResponseInputStream<T>> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading from S3");
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private static IOException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof RuntimeException runtime) throw runtime;
+        if (cause instanceof IOException io) return io;
+        return new IOException(cause.getMessage(), cause);
+    }
+
+    private long hedgeDelayNanos() {
+        long delay = hedgeDelayNanos;
+        return delay > 0 ? delay : TimeUnit.MILLISECONDS.toNanos(initialDelayMs);
+    }
+
+    private synchronized void record(long nanos) {
+        latencies[sampleIndex] = nanos;
+        sampleIndex = (sampleIndex + 1) % SAMPLES;
+        sampleCount++;
+        if (sampleCount >= MIN_SAMPLES && sampleCount % RECOMPUTE_EVERY == 0) {
+            long[] window = Arrays.copyOf(latencies, Math.min(sampleCount, SAMPLES));
+            Arrays.sort(window);
+            long p95 = window[(int) Math.ceil(window.length * 0.95) - 1];
+            hedgeDelayNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(minDelayMs), p95);
+            LOGGER.debug("S3 read hedge delay set to {} ms", TimeUnit.NANOSECONDS.toMillis(hedgeDelayNanos));
+        }
+    }
+
+    private synchronized void addToken() {
+        tokens = Math.min(MAX_TOKENS, tokens + maxRate);
+    }
+
+    private synchronized boolean tryAcquireHedge() {
+        if (tokens < 1) return false;
+        tokens -= 1;
+        return true;
+    }
+}
@@ -0,0 +1,131 @@
+package com.prestashop.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Iterator;
+
+/**
+ * Extracts what the storefront needs before an image loads: its dimensions, read from the
+ * image header, and a tiny JPEG preview (a few hundred bytes, as a data URI) to show blurred
+ * in the reserved space. The preview decode is subsampled, so large sources stay cheap.
+ * Analysis never fails an upload; unreadable images simply get no metadata.
+ */
+@Component
+public class ImageAnalyzer {
+    private Logger LOGGER = LoggerFactory.getLogger(getClass());
+
+    private static final float PLACEHOLDER_QUALITY = 0.5f;
+
+    @Value("${image.placeholder.size:20}")
+    private int placeholderSize;
+
+    public ImageInfo analyze(Path file) {
+        try (InputStream in = Files.newInputStream(file)) {
+            return analyze(in);
+        } catch (IOException e) {
+            LOGGER.debug("Could not read image {}: {}", file, e.getMessage());
+            return ImageInfo.NONE;
+        }
+    }
+
+    public ImageInfo analyze(InputStream source) {
+        try (ImageInputStream input = ImageIO.createImageInputStream(source)) {
+            if (input == null) {
+                return ImageInfo.NONE;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return ImageInfo.NONE;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                return new ImageInfo(width, height, placeholder(reader, width, height));
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.debug("Could not analyze image: {}", e.getMessage());
+            return ImageInfo.NONE;
+        }
+    }
+
+    private String placeholder(ImageReader reader, int width, int height) {
+        try {
+            // Decode at a coarse sampling that still leaves >= 2x the placeholder size
+            ImageReadParam param = reader.getDefaultReadParam();
+            int subsampling = Math.max(1, Math.min(width, height) / (placeholderSize * 2));
+            if (subsampling > 1) {
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+            }
+            BufferedImage decoded = reader.read(0, param);
+
+            double scale = Math.min(1.0, (double) placeholderSize / Math.max(decoded.getWidth(), decoded.getHeight()));
+            int targetWidth = Math.max(1, (int) Math.round(decoded.getWidth() * scale));
+            int targetHeight = Math.max(1, (int) Math.round(decoded.getHeight() * scale));
+            BufferedImage preview = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = preview.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, targetWidth, targetHeight);
+                g.drawImage(decoded, 0, 0, targetWidth, targetHeight, null);
+            } finally {
+                g.dispose();
+            }
+            return "data:image/jpeg;base64," + Base64.getEncoder().encodeToString(encodeJpeg(preview));
+        } catch (IOException | RuntimeException e) {
+            LOGGER.debug("Could not build image placeholder: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static byte[] encodeJpeg(BufferedImage image) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
+        if (!writers.hasNext()) {
+            throw new IOException("No JPEG writer");
+        }
+        ImageWriter writer = writers.next();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(buffer)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(PLACEHOLDER_QUALITY);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Dimensions in pixels and a data-URI preview; any of them may be null.
+     */
+    public record ImageInfo(Integer width, Integer height, String placeholder) {
+        public static final ImageInfo NONE = new ImageInfo(null, null, null);
+    }
+}
@@ -0,0 +1,512 @@
+package com.prestashop.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+/**
+ * Two-tier cache in front of S3 for image delivery.
+ * <ul>
+ *   <li>Memory tier: off-heap (direct) buffers, LRU, bounded by total bytes. Objects are admitted
+ *       on their second hit, so one-off requests do not push popular images out.</li>
+ *   <li>Disk tier: files under a local directory, LRU, bounded by total bytes. Every fetched object
+ *       lands here first and is served with {@link FileChannel#transferTo}.</li>
+ * </ul>
+ * Object metadata (ETag, length, last-modified) is kept with each cached body, taken from the
+ * response that fetched it, so the headers of a cached object need no storage request and a miss
+ * costs one GET rather than a HEAD and a GET.
+ * Metadata loaded on its own (for validators, HEAD and range requests without a body fetch) is
+ * cached separately; it expires after a TTL except for content-addressed and fingerprinted keys,
+ * whose content never changes. Missing keys are remembered for a short time so repeated 404s do
+ * not reach S3.
+ */
+@Service
+public class ImageCacheService {
+    private Logger LOGGER = LoggerFactory.getLogger(getClass());
+
+    @Value("${image.cache.memory.max-bytes:67108864}")
+    private long memoryMaxBytes;
+
+    @Value("${image.cache.memory.max-entry-bytes:1048576}")
+    private long memoryMaxEntryBytes;
+
+    @Value("${image.cache.disk.path:${java.io.tmpdir}/prestashop-image-cache}")
+    private String diskPath;
+
+    @Value("${image.cache.disk.max-bytes:1073741824}")
+    private long diskMaxBytes;
+
+    @Value("${image.cache.negative-ttl-seconds:30}")
+    private long negativeTtlSeconds;
+
+    @Value("${image.cache.metadata.max-entries:50000}")
+    private int metadataMaxEntries;
+
+    @Value("${image.cache.metadata.ttl-seconds:600}")
+    private long metadataTtlSeconds;
+
+    private final LinkedHashMap<String, MemoryEntry> memory = new LinkedHashMap<>(256, 0.75f, true);
+    private long memoryBytes;
+
+    private final LinkedHashMap<String, DiskEntry> disk = new LinkedHashMap<>(1024, 0.75f, true);
+    private long diskBytes;
+
+    private final LinkedHashMap<String, MetadataEntry> metadata = new LinkedHashMap<>(1024, 0.75f, true);
+
+    /** Missing keys -> System.nanoTime() deadline until which they are reported missing without a fetch. */
+    private final ConcurrentMap<String, Long> missing = new ConcurrentHashMap<>();
+
+    /** Keys being fetched right now, so concurrent misses for one key share a single S3 read. */
+    private final ConcurrentMap<String, CompletableFuture<Void>> loading = new ConcurrentHashMap<>();
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong negativeHits = new AtomicLong();
+    private final AtomicLong metadataHits = new AtomicLong();
+    private final AtomicLong metadataMisses = new AtomicLong();
+
+    private Path directory;
+
+    @PostConstruct
+    public void init() throws IOException {
+        directory = Paths.get(diskPath);
+        Files.createDirectories(directory);
+        // The key index lives in memory only, so files left by a previous run cannot be served
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(ImageCacheService::deleteQuietly);
+        }
+        LOGGER.info("Image cache: memory {} bytes (entries <= {} bytes), disk {} bytes at {}",
+                memoryMaxBytes, memoryMaxEntryBytes, diskMaxBytes, directory.toAbsolutePath());
+    }
+
+    /**
+     * Returns the cached object for the key, loading it through the loader on a miss.
+     * The loader should throw {@link FileNotFoundException} when the object does not exist;
+     * that outcome is cached for the negative TTL. Caller must close the returned object.
+     */
+    public CachedObject get(String key, ObjectLoader loader) throws IOException {
+        CachedObject hit = lookup(key);
+        if (hit != null) {
+            return hit;
+        }
+        checkMissing(key);
+
+        CompletableFuture<Void> created = new CompletableFuture<>();
+        CompletableFuture<Void> existing = loading.putIfAbsent(key, created);
+        if (existing != null) {
+            await(existing);
+            hit = lookup(key);
+            // Not indexed (too large, or already evicted): read it ourselves without storing
+            return hit != null ? hit : fetch(key, loader, false);
+        }
+        try {
+            CachedObject fetched = fetch(key, loader, true);
+            created.complete(null);
+            return fetched;
+        } catch (IOException | RuntimeException e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, created);
+        }
+    }
+
+    /**
+     * Returns a cached object if either tier holds it, without loading on a miss.
+     * Caller must close the returned object.
+     */
+    public CachedObject peek(String key) throws IOException {
+        return lookup(key);
+    }
+
+    /**
+     * Returns object metadata: that of the cached body if either tier holds the object, otherwise
+     * from the metadata cache, loading (and caching) it through the loader on a miss.
+     * A {@link FileNotFoundException} from the loader is cached like a missing object.
+     */
+    public ObjectMetadata metadata(String key, MetadataLoader loader) throws IOException {
+        ObjectMetadata cached = cachedMetadata(key);
+        if (cached != null) {
+            metadataHits.incrementAndGet();
+            return cached;
+        }
+        checkMissing(key);
+        metadataMisses.incrementAndGet();
+        ObjectMetadata loaded;
+        try {
+            loaded = loader.load();
+        } catch (FileNotFoundException e) {
+            markMissing(key);
+            throw e;
+        }
+        missing.remove(key);
+        putMetadata(key, loaded);
+        return loaded;
+    }
+
+    /**
+     * Cheap existence check: cached entries and recently missing keys are answered locally,
+     * otherwise the check is delegated and a negative answer is cached.
+     */
+    public boolean exists(String key, BooleanSupplier check) {
+        synchronized (memory) {
+            if (memory.containsKey(key)) return true;
+        }
+        synchronized (disk) {
+            if (disk.containsKey(key)) return true;
+        }
+        Long deadline = missing.get(key);
+        if (deadline != null && deadline - System.nanoTime() > 0) {
+            negativeHits.incrementAndGet();
+            return false;
+        }
+        boolean exists = check.getAsBoolean();
+        if (exists) {
+            missing.remove(key);
+        } else {
+            markMissing(key);
+        }
+        return exists;
+    }
+
+    /**
+     * Drops a key from both tiers and from the negative cache (e.g. after delete or re-upload).
+     */
+    public void invalidate(String key) {
+        missing.remove(key);
+        synchronized (metadata) {
+            metadata.remove(key);
+        }
+        synchronized (memory) {
+            MemoryEntry removed = memory.remove(key);
+            if (removed != null) memoryBytes -= removed.size();
+        }
+        DiskEntry removed;
+        synchronized (disk) {
+            removed = disk.remove(key);
+            if (removed != null) diskBytes -= removed.size();
+        }
+        if (removed != null) deleteQuietly(removed.path());
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (memory) {
+            stats.put("memoryEntries", memory.size());
+            stats.put("memoryBytes", memoryBytes);
+        }
+        synchronized (disk) {
+            stats.put("diskEntries", disk.size());
+            stats.put("diskBytes", diskBytes);
+        }
+        stats.put("memoryHits", memoryHits.get());
+        stats.put("diskHits", diskHits.get());
+        stats.put("misses", misses.get());
+        stats.put("negativeHits", negativeHits.get());
+        stats.put("metadataHits", metadataHits.get());
+        stats.put("metadataMisses", metadataMisses.get());
+        return stats;
+    }
+
+    private CachedObject lookup(String key) throws IOException {
+        MemoryEntry cached;
+        synchronized (memory) {
+            cached = memory.get(key);
+        }
+        if (cached != null) {
+            memoryHits.incrementAndGet();
+            return new CachedObject(cached.buffer().duplicate(), null, cached.size(), cached.metadata(), null);
+        }
+
+        DiskEntry entry;
+        FileChannel channel;
+        synchronized (disk) {
+            entry = disk.get(key);
+            if (entry == null) return null;
+            try {
+                // Opened under the lock: once open, a concurrent eviction cannot pull the file from under us
+                channel = FileChannel.open(entry.path(), StandardOpenOption.READ);
+            } catch (NoSuchFileException e) {
+                disk.remove(key);
+                diskBytes -= entry.size();
+                return null;
+            }
+        }
+        diskHits.incrementAndGet();
+        if (entry.size() <= memoryMaxEntryBytes) {
+            putMemory(key, new MemoryEntry(readDirect(channel, entry.size()), entry.metadata()));
+        }
+        return new CachedObject(null, channel, entry.size(), entry.metadata(), null);
+    }
+
+    /** Metadata of a cached body, or of a cached metadata entry that is still fresh; null otherwise. */
+    private ObjectMetadata cachedMetadata(String key) {
+        synchronized (memory) {
+            MemoryEntry entry = memory.get(key);
+            if (entry != null) return entry.metadata();
+        }
+        synchronized (disk) {
+            DiskEntry entry = disk.get(key);
+            if (entry != null) return entry.metadata();
+        }
+        synchronized (metadata) {
+            MetadataEntry entry = metadata.get(key);
+            if (entry != null && (entry.immutable() || entry.expiresAt() - System.nanoTime() > 0)) {
+                return entry.metadata();
+            }
+        }
+        return null;
+    }
+
+    private void putMetadata(String key, ObjectMetadata loaded) {
+        // These keys name their content, so what was read for them stays true
+        boolean immutable = ImageObjectService.isContentAddressed(key) || ImageFingerprint.isFingerprinted(key);
+        MetadataEntry entry = new MetadataEntry(loaded,
+                System.nanoTime() + TimeUnit.SECONDS.toNanos(metadataTtlSeconds), immutable);
+        synchronized (metadata) {
+            metadata.put(key, entry);
+            Iterator<Map.Entry<String, MetadataEntry>> eldest = metadata.entrySet().iterator();
+            while (metadata.size() > metadataMaxEntries && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    private void checkMissing(String key) throws FileNotFoundException {
+        Long deadline = missing.get(key);
+        if (deadline == null) return;
+        if (deadline - System.nanoTime() > 0) {
+            negativeHits.incrementAndGet();
+            throw new FileNotFoundException("Object not found: " + key);
+        }
+        missing.remove(key, deadline);
+    }
+
+    private void markMissing(String key) {
+        missing.put(key, System.nanoTime() + TimeUnit.SECONDS.toNanos(negativeTtlSeconds));
+    }
+
+    private CachedObject fetch(String key, ObjectLoader loader, boolean store) throws IOException {
+        misses.incrementAndGet();
+        Path temp = Files.createTempFile(directory, "fetch-", ".tmp");
+        long size;
+        ObjectMetadata loaded;
+        try (ObjectContent content = loader.open(); OutputStream out = Files.newOutputStream(temp)) {
+            size = content.content().transferTo(out);
+            loaded = content.metadata();
+        } catch (FileNotFoundException e) {
+            deleteQuietly(temp);
+            markMissing(key);
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(temp);
+            throw e;
+        }
+        missing.remove(key);
+
+        // Objects that would take a large share of the disk tier are streamed once and dropped;
+        // their metadata is still kept, so HEAD and conditional requests need no further read
+        if (!store || size > diskMaxBytes / 4) {
+            putMetadata(key, loaded);
+            return new CachedObject(null, FileChannel.open(temp, StandardOpenOption.READ), size, loaded, temp);
+        }
+        Path target = directory.resolve(fileName(key));
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        FileChannel channel = FileChannel.open(target, StandardOpenOption.READ);
+        putDisk(key, new DiskEntry(target, size, loaded));
+        return new CachedObject(null, channel, size, loaded, null);
+    }
+
+    private void putMemory(String key, MemoryEntry entry) {
+        synchronized (memory) {
+            MemoryEntry previous = memory.put(key, entry);
+            if (previous != null) memoryBytes -= previous.size();
+            memoryBytes += entry.size();
+            Iterator<Map.Entry<String, MemoryEntry>> eldest = memory.entrySet().iterator();
+            while (memoryBytes > memoryMaxBytes && eldest.hasNext()) {
+                memoryBytes -= eldest.next().getValue().size();
+                eldest.remove();
+            }
+        }
+    }
+
+    private void putDisk(String key, DiskEntry entry) {
+        List<Path> evicted = new ArrayList<>();
+        synchronized (disk) {
+            DiskEntry previous = disk.put(key, entry);
+            if (previous != null) diskBytes -= previous.size();
+            diskBytes += entry.size();
+            Iterator<Map.Entry<String, DiskEntry>> eldest = disk.entrySet().iterator();
+            while (diskBytes > diskMaxBytes && eldest.hasNext()) {
+                DiskEntry old = eldest.next().getValue();
+                diskBytes -= old.size();
+                eldest.remove();
+                if (!old.path().equals(entry.path())) evicted.add(old.path());
+            }
+        }
+        evicted.forEach(ImageCacheService::deleteQuietly);
+    }
+
+    private static ByteBuffer readDirect(FileChannel channel, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) size);
+        long position = 0;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) break;
+            position += read;
+        }
+        buffer.flip();
+        return buffer.asReadOnlyBuffer();
+    }
+
+    private static void await(CompletableFuture<Void> future) throws IOException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for cache load", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw new IOException("Cache load failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private static String fileName(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // best effort; the file is unreferenced either way
+        }
+    }
+
+    /** Opens the object with the headers of the same read (see {@link ObjectStorage#openObject}). */
+    @FunctionalInterface
+    public interface ObjectLoader {
+        ObjectContent open() throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface MetadataLoader {
+        ObjectMetadata load() throws IOException;
+    }
+
+    private record MemoryEntry(ByteBuffer buffer, ObjectMetadata metadata) {
+        long size() {
+            return buffer.capacity();
+        }
+    }
+
+    private record DiskEntry(Path path, long size, ObjectMetadata metadata) {}
+
+    /** {@code expiresAt} is a System.nanoTime() deadline; immutable entries never expire. */
+    private record MetadataEntry(ObjectMetadata metadata, long expiresAt, boolean immutable) {}
+
+    /**
+     * A cached object backed either by an off-heap buffer or by an open file channel.
+     */
+    public static final class CachedObject implements Closeable {
+        private final ByteBuffer buffer;
+        private final FileChannel channel;
+        private final long length;
+        private final ObjectMetadata metadata;
+        private final Path deleteOnClose;
+
+        private CachedObject(ByteBuffer buffer, FileChannel channel, long length, ObjectMetadata metadata,
+                             Path deleteOnClose) {
+            this.buffer = buffer;
+            this.channel = channel;
+            this.length = length;
+            this.metadata = metadata;
+            this.deleteOnClose = deleteOnClose;
+        }
+
+        public long length() {
+            return length;
+        }
+
+        /** Headers read together with the body. */
+        public ObjectMetadata metadata() {
+            return metadata;
+        }
+
+        public void writeTo(OutputStream out) throws IOException {
+            writeTo(out, 0, length);
+        }
+
+        /**
+         * Writes {@code count} bytes starting at {@code offset} (used for HTTP range requests).
+         */
+        public void writeTo(OutputStream out, long offset, long count) throws IOException {
+            WritableByteChannel target = Channels.newChannel(out);
+            if (buffer != null) {
+                ByteBuffer view = buffer.duplicate();
+                view.position((int) offset).limit((int) (offset + count));
+                while (view.hasRemaining()) {
+                    target.write(view);
+                }
+                return;
+            }
+            long position = offset;
+            long end = offset + count;
+            while (position < end) {
+                long sent = channel.transferTo(position, end - position, target);
+                if (sent <= 0 && position >= channel.size()) {
+                    throw new EOFException("Cached file truncated at " + position + " of " + length + " bytes");
+                }
+                position += sent;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (channel != null) channel.close();
+            if (deleteOnClose != null) deleteQuietly(deleteOnClose);
+        }
+    }
+}
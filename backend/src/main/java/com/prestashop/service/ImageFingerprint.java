@@ -0,0 +1,81 @@
+package com.prestashop.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Content fingerprints for image object keys.
+ * A fingerprinted filename looks like {@code <uuid>.<16 hex chars of SHA-256><ext>}, e.g.
+ * {@code 0b6f...e1.3fa9c2d417be8a05.jpg}; variants append {@code -<image type>} before the extension.
+ * Content-addressed keys ({@code objects/<2 hex>/<64 hex SHA-256><ext>}, see ImageObjectService)
+ * are treated the same way. Since the bytes behind such a key never change, it can be cached forever.
+ */
+public final class ImageFingerprint {
+
+    public static final int LENGTH = 16;
+    public static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    private static final Pattern FINGERPRINTED = Pattern.compile(".*\\.[0-9a-f]{" + LENGTH + "}(-[a-z_]+)?\\.[a-z0-9]+$");
+    private static final Pattern CONTENT_ADDRESSED = Pattern.compile("^objects/[0-9a-f]{2}/[0-9a-f]{64}(-[a-z_]+)?\\.[a-z0-9]+$");
+
+    private ImageFingerprint() {
+    }
+
+    /**
+     * Streams the content through SHA-256 and returns the first {@link #LENGTH} hex characters.
+     */
+    public static String of(InputStream content) throws IOException {
+        return sha256Hex(content).substring(0, LENGTH);
+    }
+
+    public static String of(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return of(in);
+        }
+    }
+
+    /**
+     * Streams the content through SHA-256 and returns the full 64-character hex digest.
+     */
+    public static String sha256Hex(InputStream content) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = content.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public static String sha256Hex(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return sha256Hex(in);
+        }
+    }
+
+    /**
+     * Builds a fingerprinted filename, e.g. filename("3fa9c2d417be8a05", ".jpg").
+     */
+    public static String filename(String fingerprint, String extension) {
+        return UUID.randomUUID() + "." + fingerprint + extension.toLowerCase();
+    }
+
+    public static boolean isFingerprinted(String key) {
+        return key != null && (FINGERPRINTED.matcher(key).matches() || CONTENT_ADDRESSED.matcher(key).matches());
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -1,82 +1,165 @@
 package com.prestashop.service;
 
-import com.prestashop.entity.ProductImage;
+import com.prestashop.repository.ImageMigrationCandidate;
 import com.prestashop.repository.ProductImageRepository;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import software.amazon.awssdk.core.sync.RequestBody;
-import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * Uploads product images that only exist on local disk to S3.
+ * Candidates are read in keyset pages, uploaded by a pool of workers, and their s3_key/s3_url
+ * columns are written in short batched transactions, so no transaction stays open for the
+ * length of the migration and memory does not grow with the number of images.
+ */
 @Service
 @RequiredArgsConstructor
 public class ImageMigrationService {
     private Logger LOGGER = LoggerFactory.getLogger(getClass());
 
+    private static final String UPDATE_S3_LOCATION =
+            "UPDATE ps_image SET s3_key = ?, s3_url = ?, width = ?, height = ?, placeholder = ? " +
+            "WHERE id_image = ? AND (s3_url IS NULL OR s3_url = '')";
+
     private final ProductImageRepository imageRepository;
-    private final S3Client s3Client;
-    private final S3Service s3Service;
+    private final ObjectStorage objectStorage;
+    private final ImageObjectService imageObjectService;
+    private final ImageAnalyzer imageAnalyzer;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
 
     @Value("${upload.images.path:./uploads/images}")
     private String uploadPath;
 
-    @Value("${aws.s3.bucket-name}")
-    private String bucketName;
+    @Value("${image.migration.workers:8}")
+    private int workers;
+
+    @Value("${image.migration.page-size:500}")
+    private int pageSize;
 
-    @Value("${aws.region}")
-    private String region;
+    @Value("${image.migration.commit-chunk-size:100}")
+    private int commitChunkSize;
+
+    /** Uploads started per second across all workers; 0 means unlimited. */
+    @Value("${image.migration.max-per-second:0}")
+    private double maxPerSecond;
 
     /**
-     * Migrates all local images to S3 that don't have S3 URLs yet
+     * Migrates all local images to S3 that don't have S3 URLs yet, reporting to {@code progress}
+     * and stopping early once it is cancelled.
      */
-    @Transactional
-    public MigrationResult migrateLocalImagesToS3() {
-        LOGGER.info("Starting migration of local images to S3...");
-
-        List<ProductImage> imagesWithoutS3 = imageRepository.findImagesWithoutS3Url();
-        LOGGER.info("Found {} images without S3 URLs", imagesWithoutS3.size());
-
-        int success = 0;
-        int failed = 0;
-        int skipped = 0;
-
-        for (ProductImage image : imagesWithoutS3) {
-            try {
-                boolean migrated = migrateImageToS3(image);
-                if (migrated) {
-                    success++;
-                } else {
-                    skipped++;
+    public MigrationResult migrateLocalImagesToS3(MigrationProgress progress) {
+        LOGGER.info("Starting migration of local images to S3 ({} workers, {} per second max)",
+                workers, maxPerSecond > 0 ? maxPerSecond : "unlimited");
+
+        AtomicInteger success = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicInteger skipped = new AtomicInteger();
+        ConcurrentLinkedQueue<Object[]> pendingUpdates = new ConcurrentLinkedQueue<>();
+        RateLimiter rateLimiter = new RateLimiter(maxPerSecond);
+
+        // Bounds the backlog handed to the pool, so only a few candidates are held beyond the current page
+        Semaphore backlog = new Semaphore(workers * 4);
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "image-migration-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        progress.setTotal(imageRepository.countImagesWithoutS3Url());
+        int total = 0;
+        long afterId = 0;
+        try {
+            List<ImageMigrationCandidate> page;
+            do {
+                page = imageRepository.findMigrationCandidates(afterId, PageRequest.of(0, pageSize));
+                for (ImageMigrationCandidate candidate : page) {
+                    if (progress.isCancelled()) {
+                        break;
+                    }
+                    backlog.acquire();
+                    rateLimiter.acquire();
+                    pool.execute(() -> {
+                        try {
+                            MigratedImage migrated = migrateImageToS3(candidate);
+                            if (migrated != null) {
+                                ImageAnalyzer.ImageInfo info = migrated.info();
+                                pendingUpdates.add(new Object[] { migrated.s3Key(), objectStorage.getPublicUrl(migrated.s3Key()),
+                                        info.width(), info.height(), info.placeholder(), candidate.id() });
+                                success.incrementAndGet();
+                                progress.success();
+                            } else {
+                                skipped.incrementAndGet();
+                                progress.skipped(1);
+                            }
+                        } catch (Exception e) {
+                            LOGGER.error("Failed to migrate image {} for product {}: {}",
+                                    candidate.id(), candidate.productId(), e.getMessage());
+                            failed.incrementAndGet();
+                            progress.failed();
+                        } finally {
+                            backlog.release();
+                        }
+                    });
+                    total++;
+                    if (pendingUpdates.size() >= commitChunkSize) {
+                        commitUpdates(pendingUpdates);
+                    }
+                }
+                if (!page.isEmpty()) {
+                    afterId = page.get(page.size() - 1).id();
+                    LOGGER.info("Migration progress: {} queued, {} success, {} failed, {} skipped",
+                            total, success.get(), failed.get(), skipped.get());
                 }
-            } catch (Exception e) {
-                LOGGER.error("Failed to migrate image {} for product {}: {}",
-                        image.getId(), image.getProduct().getId(), e.getMessage());
-                failed++;
+            } while (page.size() == pageSize && !progress.isCancelled());
+
+            pool.shutdown();
+            while (!pool.awaitTermination(10, TimeUnit.SECONDS)) {
+                commitUpdates(pendingUpdates);
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.warn("Image migration interrupted after {} images", total);
+        } finally {
+            pool.shutdownNow();
+            commitUpdates(pendingUpdates);
         }
 
         LOGGER.info("Migration completed: {} success, {} failed, {} skipped",
-                success, failed, skipped);
+                success.get(), failed.get(), skipped.get());
 
-        return new MigrationResult(imagesWithoutS3.size(), success, failed, skipped);
+        return new MigrationResult(total, success.get(), failed.get(), skipped.get());
     }
 
     /**
-     * Migrates a single image to S3
+     * Uploads a single image to S3 and returns its key and dimensions, or null when the local file is missing.
      */
-    private boolean migrateImageToS3(ProductImage image) throws IOException {
-        Long productId = image.getProduct().getId();
-        String filename = image.getFilename();
+    private MigratedImage migrateImageToS3(ImageMigrationCandidate image) throws IOException {
+        Long productId = image.productId();
+        String filename = image.filename();
 
         // Build local file path
         Path localFilePath = Paths.get(uploadPath, "products", productId.toString(), filename);
@@ -85,37 +168,97 @@ public class ImageMigrationService {
 
         if (!Files.exists(localFilePath)) {
             LOGGER.warn("Local file not found for image {} (product {}): {}",
-                    image.getId(), productId, localFilePath);
-            return false;
+                    image.id(), productId, localFilePath);
+            return null;
         }
 
-        // Read file content
-        byte[] fileContent = Files.readAllBytes(localFilePath);
-        String contentType = image.getMimeType() != null ? image.getMimeType() : "image/jpeg";
+        String contentType = image.mimeType() != null ? image.mimeType() : "image/jpeg";
+
+        LOGGER.debug("Uploading image {} to S3 ({} bytes)", image.id(), Files.size(localFilePath));
 
-        // Generate S3 key
-        String s3Key = "products/" + productId + "/" + filename;
+        // Content-addressed: bytes already in S3 (e.g. the same image on several products) are not uploaded again
+        String s3Key = imageObjectService.store(localFilePath, contentType);
+        try {
+            return new MigratedImage(s3Key, imageAnalyzer.analyze(localFilePath));
+        } catch (RuntimeException e) {
+            imageObjectService.discard(s3Key);
+            throw e;
+        }
+    }
 
-        LOGGER.info("Uploading image {} to S3: {} ({} bytes)", image.getId(), s3Key, fileContent.length);
+    /**
+     * Writes the collected S3 location and dimension updates as one JDBC batch in its own short transaction.
+     * Each upload took a reference on its stored object; rows that did not end up with the key (the
+     * guarded update matched nothing because the row was migrated meanwhile, or the batch failed)
+     * drop that reference again, so the object does not outlive its last real user.
+     */
+    private synchronized void commitUpdates(ConcurrentLinkedQueue<Object[]> pendingUpdates) {
+        List<Object[]> batch = new ArrayList<>();
+        Object[] update;
+        while ((update = pendingUpdates.poll()) != null) {
+            batch.add(update);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPDATE_S3_LOCATION, batch));
+        } catch (RuntimeException e) {
+            batch.forEach(failed -> discardQuietly((String) failed[0]));
+            throw e;
+        }
+        // Batched counts can be SUCCESS_NO_INFO (rewriteBatchedStatements), so read back which rows got their key
+        List<Object> ids = batch.stream().map(written -> written[5]).toList();
+        Map<Long, String> keys = new HashMap<>();
+        jdbcTemplate.query("SELECT id_image, s3_key FROM ps_image WHERE id_image IN ("
+                        + String.join(",", Collections.nCopies(ids.size(), "?")) + ")",
+                row -> { keys.put(row.getLong("id_image"), row.getString("s3_key")); }, ids.toArray());
+        int unused = 0;
+        for (Object[] written : batch) {
+            if (!written[0].equals(keys.get((Long) written[5]))) {
+                discardQuietly((String) written[0]);
+                unused++;
+            }
+        }
+        LOGGER.debug("Committed S3 locations for {} images ({} already migrated elsewhere)", batch.size() - unused, unused);
+    }
 
-        // Upload to S3
-        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
-                .bucket(bucketName)
-                .key(s3Key)
-                .contentType(contentType)
-                .build();
+    private void discardQuietly(String s3Key) {
+        try {
+            imageObjectService.discard(s3Key);
+        } catch (RuntimeException e) {
+            LOGGER.error("Failed to release unused image object {}", s3Key, e);
+        }
+    }
 
-        s3Client.putObject(putObjectRequest, RequestBody.fromBytes(fileContent));
+    /**
+     * Spaces out permits evenly at the configured rate.
+     */
+    private static final class RateLimiter {
+        private final long intervalNanos;
+        private long nextPermitNanos = System.nanoTime();
 
-        // Update database record
-        String s3Url = s3Service.getPublicUrl(s3Key);
-        image.setS3Key(s3Key);
-        image.setS3Url(s3Url);
-        imageRepository.save(image);
+        RateLimiter(double permitsPerSecond) {
+            this.intervalNanos = permitsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond) : 0;
+        }
 
-        LOGGER.info("Successfully migrated image {} to S3: {}", image.getId(), s3Url);
-        return true;
+        void acquire() throws InterruptedException {
+            if (intervalNanos == 0) return;
+            long wait;
+            synchronized (this) {
+                long now = System.nanoTime();
+                long permitAt = Math.max(now, nextPermitNanos);
+                nextPermitNanos = permitAt + intervalNanos;
+                wait = permitAt - now;
+            }
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+                if (Thread.interrupted()) throw new InterruptedException();
+            }
+        }
     }
 
+    private record MigratedImage(String s3Key, ImageAnalyzer.ImageInfo info) {}
+
     public record MigrationResult(int total, int success, int failed, int skipped) {}
 }
@@ -0,0 +1,192 @@
+package com.prestashop.service;
+
+import com.prestashop.entity.ImageObject;
+import com.prestashop.repository.ImageObjectRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Content-addressed image storage. Each distinct content is stored once, at
+ * {@code objects/<first 2 hex>/<sha-256><ext>}, and indexed in ps_image_object with a reference
+ * count. Storing bytes that are already indexed only adds a reference (no upload); releasing the
+ * last reference removes the index row and tells the caller to delete the object.
+ * <p>
+ * The reference is taken in a short transaction (or the caller's, if one is open) before new
+ * content is uploaded, and no connection is held while bytes are in flight. Taking it first
+ * withdraws any queued deletion of the key, waiting for a deletion batch already in progress, so
+ * the deletion outbox can never remove the object after the upload. Concurrent uploads of one
+ * image are safe because a content-addressed key always holds the same bytes.
+ */
+@Service
+@RequiredArgsConstructor
+public class ImageObjectService {
+    private Logger LOGGER = LoggerFactory.getLogger(getClass());
+
+    public static final String OBJECTS_PREFIX = "objects/";
+
+    private final ImageObjectRepository imageObjectRepository;
+    private final ObjectStorage objectStorage;
+    private final StorageDeletionService storageDeletionService;
+    private final TransactionTemplate transactionTemplate;
+
+    public static String objectKey(String contentHash, String extension) {
+        return OBJECTS_PREFIX + contentHash.substring(0, 2) + "/" + contentHash + extension;
+    }
+
+    public static boolean isContentAddressed(String s3Key) {
+        return s3Key != null && s3Key.startsWith(OBJECTS_PREFIX);
+    }
+
+    /**
+     * Stores an uploaded file (or references the existing copy of the same bytes) and returns its S3 key.
+     */
+    public String store(MultipartFile file) throws IOException {
+        String contentHash;
+        try (InputStream content = file.getInputStream()) {
+            contentHash = ImageFingerprint.sha256Hex(content);
+        }
+        return store(contentHash, extension(file.getOriginalFilename()), file.getContentType(), file.getSize(), s3Key -> {
+            try (InputStream content = file.getInputStream()) {
+                objectStorage.putStream(s3Key, content, file.getSize(), file.getContentType());
+            }
+        });
+    }
+
+    /**
+     * Stores a local file (or references the existing copy of the same bytes) and returns its S3 key.
+     */
+    public String store(Path source, String contentType) throws IOException {
+        String contentHash = ImageFingerprint.sha256Hex(source);
+        return store(contentHash, extension(source.getFileName().toString()), contentType, Files.size(source),
+                s3Key -> objectStorage.putFile(s3Key, source, contentType));
+    }
+
+    /**
+     * Drops one reference to a stored image. Returns true when the caller should delete the S3 object
+     * (and its variants): the last reference to a content-addressed object is gone, or the key is a
+     * product-scoped key, which is never shared.
+     */
+    @Transactional
+    public boolean release(String s3Key) {
+        if (!isContentAddressed(s3Key)) {
+            return true;
+        }
+        imageObjectRepository.release(s3Key);
+        boolean unreferenced = imageObjectRepository.deleteIfUnreferenced(s3Key) == 1;
+        if (!unreferenced) {
+            LOGGER.debug("Image object {} is still referenced, keeping it", s3Key);
+        }
+        return unreferenced;
+    }
+
+    /**
+     * Set-based {@link #release} for many images at once: drops one reference per given key (a key
+     * listed twice loses two) and returns the keys whose objects the caller should delete.
+     */
+    @Transactional
+    public List<String> releaseAll(Collection<String> s3Keys) {
+        Set<String> unreferenced = new LinkedHashSet<>();
+        Map<String, Integer> references = new LinkedHashMap<>();
+        for (String s3Key : s3Keys) {
+            if (isContentAddressed(s3Key)) {
+                references.merge(s3Key, 1, Integer::sum);
+            } else {
+                unreferenced.add(s3Key);
+            }
+        }
+        if (!references.isEmpty()) {
+            // Usually every key loses one reference, which makes this a single UPDATE
+            references.entrySet().stream()
+                    .collect(Collectors.groupingBy(Map.Entry::getValue,
+                            Collectors.mapping(Map.Entry::getKey, Collectors.toList())))
+                    .forEach((count, keys) -> imageObjectRepository.releaseAll(keys, count));
+            // The UPDATE holds the rows' locks until commit, so nothing can re-acquire them in between
+            List<String> released = imageObjectRepository.findUnreferencedS3Keys(references.keySet());
+            if (!released.isEmpty()) {
+                imageObjectRepository.deleteUnreferenced(released);
+                unreferenced.addAll(released);
+            }
+            LOGGER.debug("Released {} image objects, {} no longer referenced", references.size(), released.size());
+        }
+        return new ArrayList<>(unreferenced);
+    }
+
+    /**
+     * Compensates a {@link #store} whose image row could not be written: drops the reference and
+     * queues the object for deletion if nothing else uses it.
+     */
+    @Transactional
+    public void discard(String s3Key) {
+        if (release(s3Key)) {
+            storageDeletionService.enqueueImages(List.of(s3Key));
+        }
+    }
+
+    private String store(String contentHash, String extension, String contentType, long size, Upload upload) throws IOException {
+        Optional<String> indexedKey = imageObjectRepository.findByContentHash(contentHash).map(ImageObject::getS3Key);
+        String candidateKey = indexedKey.orElse(objectKey(contentHash, extension));
+
+        Reference reference = transactionTemplate.execute(status -> acquire(contentHash, candidateKey, contentType, size));
+        String s3Key = reference.s3Key();
+        if (indexedKey.isPresent() && !reference.inserted()) {
+            LOGGER.info("Identical image already stored as {}, skipping upload", s3Key);
+            return s3Key;
+        }
+
+        // New content, or the last reference went away between the lookup and the acquire (so the
+        // object may be deleted already). Another request indexing the same bytes concurrently
+        // uploads identical content to the same key, so uploading again is harmless.
+        try {
+            upload.to(s3Key);
+        } catch (IOException | RuntimeException e) {
+            transactionTemplate.executeWithoutResult(status -> discard(s3Key));
+            throw e;
+        }
+        LOGGER.info("Stored image object {} ({} bytes)", s3Key, size);
+        return s3Key;
+    }
+
+    private Reference acquire(String contentHash, String candidateKey, String contentType, long size) {
+        if (imageObjectRepository.acquire(contentHash, candidateKey, contentType, size) == 1) {
+            // A deletion queued when a previous copy lost its last reference must not remove the new upload
+            storageDeletionService.cancelImages(List.of(candidateKey));
+            return new Reference(candidateKey, true);
+        }
+        String s3Key = imageObjectRepository.findByContentHash(contentHash)
+                .map(ImageObject::getS3Key)
+                .orElse(candidateKey);
+        return new Reference(s3Key, false);
+    }
+
+    private static String extension(String filename) {
+        return filename != null && filename.contains(".")
+                ? filename.substring(filename.lastIndexOf(".")).toLowerCase()
+                : ".jpg";
+    }
+
+    private record Reference(String s3Key, boolean inserted) {}
+
+    @FunctionalInterface
+    private interface Upload {
+        void to(String s3Key) throws IOException;
+    }
+}
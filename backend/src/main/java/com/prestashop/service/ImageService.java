@@ -1,5 +1,9 @@
 package com.prestashop.service;
 
+import com.prestashop.dto.ImageUploadCompleteRequest;
+import com.prestashop.dto.ImageUploadResultDto;
+import com.prestashop.dto.ImageUploadUrlDto;
+import com.prestashop.dto.ImageUploadUrlRequest;
 import com.prestashop.dto.ProductImageDto;
 import com.prestashop.entity.Product;
 import com.prestashop.entity.ProductImage;
@@ -12,14 +16,26 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,11 +45,26 @@ public class ImageService {
 
     private final ProductImageRepository imageRepository;
     private final ProductRepository productRepository;
-    private final S3Service s3Service;
+    private final ObjectStorage objectStorage;
+    /** Present only with S3 storage, which alone supports presigned direct uploads. */
+    private final Optional<S3Service> s3Service;
+    private final StorageDeletionService storageDeletionService;
+    private final ImageObjectService imageObjectService;
+    private final ImageAnalyzer imageAnalyzer;
+    private final TransactionTemplate transactionTemplate;
 
     @Value("${upload.images.path:./uploads/images}")
     private String uploadPath;
 
+    @Value("${image.upload.max-bytes:10485760}")
+    private long maxUploadBytes;
+
+    @Value("${image.upload.batch.max-files:20}")
+    private int maxBatchFiles;
+
+    @Value("${image.upload.batch.parallelism:6}")
+    private int batchParallelism;
+
     @Transactional(readOnly = true)
     public List<ProductImageDto> getProductImages(Long productId) {
         LOGGER.debug("Fetching images for product {}", productId);
@@ -57,31 +88,318 @@ public class ImageService {
         return dtos;
     }
 
-    @Transactional
+    /**
+     * Uploads one image. The bytes are stored before any transaction is opened, so a slow upload
+     * does not hold a database connection; the row is then written in a short transaction.
+     */
     public ProductImageDto uploadImage(Long productId, MultipartFile file, String legend, boolean cover) throws IOException {
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new ResourceNotFoundException("Product not found: " + productId));
+        if (!productRepository.existsById(productId)) {
+            throw new ResourceNotFoundException("Product not found: " + productId);
+        }
+
+        // Validates the file, then stores it by content hash: identical bytes already stored are referenced instead
+        StoredImage stored = storeImage(file);
+
+        ProductImage image = insertImage(productId, stored, legend, cover);
+        return ProductImageDto.fromEntity(image);
+    }
+
+    /**
+     * Uploads several images to a product at once. Each file is validated, stored and analyzed in
+     * parallel (at most {@code image.upload.batch.parallelism} at a time), with no transaction open
+     * across the transfers (only the object references are written, each in its own short one);
+     * the stored ones then get consecutive positions and are inserted in one batch. A file that is
+     * rejected or fails to upload is reported in its result and does not affect the others.
+     *
+     * @param legends    optional legend per file, matched by index
+     * @param coverIndex optional index of the file to make the cover image
+     */
+    public List<ImageUploadResultDto> uploadImages(Long productId, List<MultipartFile> files,
+                                                   List<String> legends, Integer coverIndex) {
+        if (!productRepository.existsById(productId)) {
+            throw new ResourceNotFoundException("Product not found: " + productId);
+        }
+        if (files == null || files.isEmpty()) {
+            throw new IllegalArgumentException("No files uploaded");
+        }
+        if (files.size() > maxBatchFiles) {
+            throw new IllegalArgumentException("At most " + maxBatchFiles + " files can be uploaded at once");
+        }
+
+        StoredImage[] stored = new StoredImage[files.size()];
+        String[] errors = new String[files.size()];
+        Semaphore permits = new Semaphore(batchParallelism);
+        List<Future<StoredImage>> uploads = new ArrayList<>(files.size());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (MultipartFile file : files) {
+                uploads.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        return storeImage(file);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+            for (int i = 0; i < uploads.size(); i++) {
+                try {
+                    stored[i] = uploads.get(i).get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof IllegalArgumentException) {
+                        errors[i] = cause.getMessage();
+                    } else {
+                        LOGGER.error("Failed to upload image {} for product {}", files.get(i).getOriginalFilename(), productId, cause);
+                        errors[i] = "Upload failed";
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // Closing the executor waited for the uploads still running; release those that finished too
+            for (int i = 0; i < uploads.size(); i++) {
+                if (stored[i] == null && uploads.get(i).state() == Future.State.SUCCESS) {
+                    stored[i] = uploads.get(i).resultNow();
+                }
+            }
+            releaseStoredImages(stored);
+            throw new IllegalStateException("Image upload interrupted", e);
+        }
+
+        ProductImage[] images;
+        try {
+            images = transactionTemplate.execute(status -> insertImages(productId, stored, legends, coverIndex));
+        } catch (RuntimeException e) {
+            // The rows were not written, so drop the references taken for the uploaded objects
+            releaseStoredImages(stored);
+            throw e;
+        }
+
+        List<ImageUploadResultDto> results = new ArrayList<>(files.size());
+        int uploaded = 0;
+        for (int i = 0; i < files.size(); i++) {
+            String filename = files.get(i).getOriginalFilename();
+            if (images[i] != null) {
+                results.add(ImageUploadResultDto.success(filename, ProductImageDto.fromEntity(images[i])));
+                uploaded++;
+            } else {
+                results.add(ImageUploadResultDto.failure(filename, errors[i]));
+            }
+        }
+        LOGGER.info("Batch upload for product {}: {} of {} images stored", productId, uploaded, files.size());
+        return results;
+    }
 
-        // Validate file
+    private StoredImage storeImage(MultipartFile file) throws IOException {
         if (file.isEmpty()) {
             throw new IllegalArgumentException("File is empty");
         }
-
         String contentType = file.getContentType();
         if (contentType == null || !contentType.startsWith("image/")) {
             throw new IllegalArgumentException("File must be an image");
         }
 
-        String originalFilename = file.getOriginalFilename();
-        String extension = originalFilename != null && originalFilename.contains(".")
-                ? originalFilename.substring(originalFilename.lastIndexOf("."))
-                : ".jpg";
-        String filename = UUID.randomUUID().toString() + extension;
+        String s3Key = imageObjectService.store(file);
+        LOGGER.info("Uploaded image to S3: {} -> {}", file.getOriginalFilename(), s3Key);
+
+        ImageAnalyzer.ImageInfo info;
+        try (InputStream content = file.getInputStream()) {
+            info = imageAnalyzer.analyze(content);
+        } catch (IOException | RuntimeException e) {
+            // Stored but not recorded: drop the reference again, as completeUpload does
+            try {
+                imageObjectService.discard(s3Key);
+            } catch (RuntimeException cleanup) {
+                e.addSuppressed(cleanup);
+            }
+            throw e;
+        }
+        return new StoredImage(file.getOriginalFilename(), contentType, file.getSize(), s3Key, info);
+    }
+
+    /**
+     * Assigns positions after the product's current last image, settles the cover once, and writes
+     * all rows in one batch. Returns the created images indexed like {@code stored}.
+     * <p>
+     * The product row is locked first, so concurrent uploads to one product read the last position
+     * one after the other and neither gets duplicate positions nor a second cover.
+     */
+    private ProductImage[] insertImages(Long productId, StoredImage[] stored, List<String> legends, Integer coverIndex) {
+        Product product = lockProduct(productId);
+        Integer maxPosition = imageRepository.findMaxPositionByProductId(productId);
+        int position = maxPosition != null ? maxPosition + 1 : 0;
+
+        boolean explicitCover = coverIndex != null && coverIndex >= 0 && coverIndex < stored.length && stored[coverIndex] != null;
+        if (explicitCover) {
+            imageRepository.clearCoverByProductId(productId);
+        }
+        // Without an explicit choice, the first image of a product without images becomes its cover
+        boolean needsCover = !explicitCover && maxPosition == null;
+        if (explicitCover || needsCover) {
+            productRepository.touch(productId, LocalDateTime.now());
+        }
+
+        ProductImage[] images = new ProductImage[stored.length];
+        List<ProductImage> batch = new ArrayList<>();
+        for (int i = 0; i < stored.length; i++) {
+            StoredImage image = stored[i];
+            if (image == null) {
+                continue;
+            }
+            String legend = legends != null && i < legends.size() && legends.get(i) != null && !legends.get(i).isBlank()
+                    ? legends.get(i)
+                    : null;
+            images[i] = ProductImage.builder()
+                    .product(product)
+                    .filename(image.s3Key().substring(image.s3Key().lastIndexOf('/') + 1))
+                    .originalFilename(image.originalFilename())
+                    .mimeType(image.contentType())
+                    .fileSize(image.fileSize())
+                    .position(position++)
+                    .cover(explicitCover ? i == coverIndex : needsCover && batch.isEmpty())
+                    .legend(legend)
+                    .s3Key(image.s3Key())
+                    .s3Url(objectStorage.getPublicUrl(image.s3Key()))
+                    .width(image.info().width())
+                    .height(image.info().height())
+                    .placeholder(image.info().placeholder())
+                    .build();
+            batch.add(images[i]);
+        }
+        imageRepository.insertAll(batch);
+        return images;
+    }
+
+    private void releaseStoredImages(StoredImage[] stored) {
+        for (StoredImage image : stored) {
+            if (image == null) {
+                continue;
+            }
+            try {
+                imageObjectService.discard(image.s3Key());
+            } catch (RuntimeException e) {
+                LOGGER.error("Failed to release uploaded image {}", image.s3Key(), e);
+            }
+        }
+    }
+
+    /**
+     * First step of a direct upload: issues a presigned PUT URL for a staging key under the product.
+     */
+    @Transactional(readOnly = true)
+    public ImageUploadUrlDto createUploadUrl(Long productId, ImageUploadUrlRequest request) {
+        if (!productRepository.existsById(productId)) {
+            throw new ResourceNotFoundException("Product not found: " + productId);
+        }
+        if (request.getSize() > maxUploadBytes) {
+            throw new IllegalArgumentException("File exceeds the maximum size of " + maxUploadBytes + " bytes");
+        }
+
+        S3Service.PresignedUpload upload = directUploadStore().presignUpload(
+                productId, request.getFilename(), request.getContentType(), request.getSize());
+        return ImageUploadUrlDto.builder()
+                .key(upload.key())
+                .uploadUrl(upload.url())
+                .method("PUT")
+                .headers(upload.headers())
+                .expiresAt(upload.expiresAt())
+                .build();
+    }
+
+    private S3Service directUploadStore() {
+        return s3Service.orElseThrow(() ->
+                new IllegalStateException("Direct uploads are only available with S3 storage (storage.type=s3)"));
+    }
+
+    /**
+     * Second step of a direct upload: verifies the staged object (HEAD for size and type, plus a
+     * 12-byte ranged read of the file signature), moves it to its final key and creates the image row.
+     * Only the final insert runs in a transaction; the S3 calls before it hold no connection. If any
+     * step after the move fails, the moved object is discarded again.
+     */
+    public ProductImageDto completeUpload(Long productId, ImageUploadCompleteRequest request) throws IOException {
+        S3Service s3 = directUploadStore();
+        if (!productRepository.existsById(productId)) {
+            throw new ResourceNotFoundException("Product not found: " + productId);
+        }
+
+        String stagingKey = request.getKey();
+        if (!stagingKey.startsWith(S3Service.stagingPrefix(productId)) || stagingKey.contains("..")) {
+            throw new IllegalArgumentException("Upload key does not belong to product " + productId);
+        }
+
+        ObjectMetadata metadata;
+        try {
+            metadata = s3.headObject(stagingKey);
+        } catch (FileNotFoundException e) {
+            throw new IllegalArgumentException("Upload not found: " + stagingKey);
+        }
+
+        String contentType = metadata.contentType();
+        if (metadata.contentLength() <= 0 || metadata.contentLength() > maxUploadBytes) {
+            s3.deleteStagedUpload(stagingKey);
+            throw new IllegalArgumentException("File exceeds the maximum size of " + maxUploadBytes + " bytes");
+        }
+        if (contentType == null || !contentType.startsWith("image/") || !hasImageSignature(stagingKey)) {
+            s3.deleteStagedUpload(stagingKey);
+            throw new IllegalArgumentException("File must be an image");
+        }
+
+        String s3Key = s3.promoteUpload(stagingKey, productId, fingerprintFromETag(metadata.eTag()), contentType);
+        StoredImage stored;
+        try {
+            String originalFilename = request.getFilename() != null
+                    ? request.getFilename()
+                    : stagingKey.substring(stagingKey.lastIndexOf('/') + 1);
+
+            // The file never passed through the backend, so read it back once for dimensions and preview
+            ImageAnalyzer.ImageInfo info;
+            try (InputStream content = objectStorage.getObjectContent(s3Key)) {
+                info = imageAnalyzer.analyze(content);
+            }
+            stored = new StoredImage(originalFilename, contentType, metadata.contentLength(), s3Key, info);
+        } catch (IOException | RuntimeException e) {
+            // Promoted but not recorded yet: drop the object, as insertImage does when the row fails
+            try {
+                imageObjectService.discard(s3Key);
+            } catch (RuntimeException cleanup) {
+                e.addSuppressed(cleanup);
+            }
+            throw e;
+        }
+
+        ProductImage image = insertImage(productId, stored, request.getLegend(), request.isCover());
+        return ProductImageDto.fromEntity(image);
+    }
+
+    /**
+     * Writes the row for a stored image in a short transaction. If that fails, the reference taken
+     * for the object is dropped again, so a failed insert leaves nothing behind in storage.
+     */
+    private ProductImage insertImage(Long productId, StoredImage stored, String legend, boolean cover) {
+        try {
+            return transactionTemplate.execute(status -> saveImage(lockProduct(productId),
+                    stored.s3Key(), stored.originalFilename(), stored.contentType(), stored.fileSize(),
+                    legend, cover, stored.info()));
+        } catch (RuntimeException e) {
+            try {
+                imageObjectService.discard(stored.s3Key());
+            } catch (RuntimeException cleanup) {
+                e.addSuppressed(cleanup);
+            }
+            throw e;
+        }
+    }
+
+    /** Locks the product row for the rest of the transaction (see {@link #insertImages}). */
+    private Product lockProduct(Long productId) {
+        return productRepository.findByIdForUpdate(productId)
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found: " + productId));
+    }
 
-        // Upload to S3
-        String s3Key = s3Service.uploadFile(file, productId);
-        String s3Url = s3Service.getPublicUrl(s3Key);
-        LOGGER.info("Uploaded image to S3: {} -> {}", originalFilename, s3Url);
+    private ProductImage saveImage(Product product, String s3Key, String originalFilename, String contentType,
+                                   long fileSize, String legend, boolean cover, ImageAnalyzer.ImageInfo info) {
+        Long productId = product.getId();
 
         // If setting as cover, clear existing covers
         if (cover) {
@@ -91,23 +409,56 @@ public class ImageService {
         // Get next position
         Integer maxPosition = imageRepository.findMaxPositionByProductId(productId);
         int position = maxPosition != null ? maxPosition + 1 : 0;
+        if (cover || position == 0) {
+            productRepository.touch(productId, LocalDateTime.now());
+        }
 
         // Create image entity with S3 details
         ProductImage image = ProductImage.builder()
                 .product(product)
-                .filename(filename)
+                .filename(s3Key.substring(s3Key.lastIndexOf('/') + 1))
                 .originalFilename(originalFilename)
                 .mimeType(contentType)
-                .fileSize(file.getSize())
+                .fileSize(fileSize)
                 .position(position)
                 .cover(cover || position == 0) // First image is cover by default
                 .legend(legend)
                 .s3Key(s3Key)
-                .s3Url(s3Url)
+                .s3Url(objectStorage.getPublicUrl(s3Key))
+                .width(info.width())
+                .height(info.height())
+                .placeholder(info.placeholder())
                 .build();
 
-        image = imageRepository.save(image);
-        return ProductImageDto.fromEntity(image);
+        return imageRepository.save(image);
+    }
+
+    /**
+     * Checks the leading bytes for a JPEG, PNG, GIF or WebP signature.
+     */
+    private boolean hasImageSignature(String s3Key) throws IOException {
+        byte[] head;
+        try (InputStream in = objectStorage.getObjectRange(s3Key, 0, 11)) {
+            head = in.readNBytes(12);
+        }
+        if (head.length >= 3 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xFF) == 0xD8 && (head[2] & 0xFF) == 0xFF) {
+            return true;
+        }
+        String ascii = new String(head, StandardCharsets.ISO_8859_1);
+        return ascii.startsWith("\u0089PNG")
+                || ascii.startsWith("GIF8")
+                || (ascii.startsWith("RIFF") && ascii.length() >= 12 && ascii.startsWith("WEBP", 8));
+    }
+
+    /**
+     * A single-part PUT's ETag is the MD5 of the content, so it serves as the content fingerprint.
+     */
+    private static String fingerprintFromETag(String eTag) throws IOException {
+        String hex = eTag != null ? eTag.replace("\"", "").toLowerCase() : "";
+        if (hex.matches("[0-9a-f]{32}")) {
+            return hex.substring(0, ImageFingerprint.LENGTH);
+        }
+        return ImageFingerprint.of(new ByteArrayInputStream(hex.getBytes(StandardCharsets.UTF_8)));
     }
 
     @Transactional
@@ -115,13 +466,11 @@ public class ImageService {
         ProductImage image = imageRepository.findById(imageId)
                 .orElseThrow(() -> new ResourceNotFoundException("Image not found: " + imageId));
 
-        // Delete from S3 if S3 key exists
+        // Delete from S3 if S3 key exists and no other image shares the object
         if (image.getS3Key() != null && !image.getS3Key().isEmpty()) {
-            try {
-                s3Service.deleteFile(image.getS3Key());
-                LOGGER.info("Deleted image from S3: {}", image.getS3Key());
-            } catch (Exception e) {
-                LOGGER.error("Failed to delete image from S3: {}", image.getS3Key(), e);
+            // The object and its variants are deleted after commit, by the outbox worker
+            if (imageObjectService.release(image.getS3Key())) {
+                storageDeletionService.enqueueImages(List.of(image.getS3Key()));
             }
         } else {
             // Fallback: Delete from local filesystem (for legacy images)
@@ -140,12 +489,8 @@ public class ImageService {
         imageRepository.delete(image);
 
         if (wasCover) {
-            List<ProductImage> remaining = imageRepository.findByProductIdOrderByPositionAsc(productId);
-            if (!remaining.isEmpty()) {
-                ProductImage newCover = remaining.get(0);
-                newCover.setCover(true);
-                imageRepository.save(newCover);
-            }
+            imageRepository.assignFirstAsCover(productId);
+            productRepository.touch(productId, LocalDateTime.now());
         }
     }
 
@@ -154,24 +499,38 @@ public class ImageService {
         ProductImage image = imageRepository.findById(imageId)
                 .orElseThrow(() -> new ResourceNotFoundException("Image not found: " + imageId));
 
-        imageRepository.clearCoverByProductId(image.getProduct().getId());
+        // One UPDATE sets this image and clears the others; the loaded entity is detached by it
+        imageRepository.assignCover(image.getProduct().getId(), imageId);
         image.setCover(true);
-        image = imageRepository.save(image);
+        productRepository.touch(image.getProduct().getId(), LocalDateTime.now());
 
         return ProductImageDto.fromEntity(image);
     }
 
+    /**
+     * Reorders a product's images in one statement: the listed images take positions 0..n-1 in
+     * list order, any images left out follow them in their current order.
+     */
     @Transactional
-    public void updatePositions(Long productId, List<Long> imageIds) {
-        for (int i = 0; i < imageIds.size(); i++) {
-            Long imageId = imageIds.get(i);
-            int position = i;
-            imageRepository.findById(imageId).ifPresent(image -> {
-                if (image.getProduct().getId().equals(productId)) {
-                    image.setPosition(position);
-                    imageRepository.save(image);
-                }
-            });
+    public List<ProductImageDto> updatePositions(Long productId, List<Long> imageIds) {
+        if (!productRepository.existsById(productId)) {
+            throw new ResourceNotFoundException("Product not found: " + productId);
         }
+        if (imageIds.stream().distinct().count() != imageIds.size()) {
+            throw new IllegalArgumentException("Image ids must not repeat");
+        }
+        if (imageRepository.countByProductIdAndIdIn(productId, imageIds) != imageIds.size()) {
+            throw new IllegalArgumentException("Some images do not belong to product " + productId);
+        }
+
+        imageRepository.reorder(productId, imageIds);
+        LOGGER.info("Reordered {} images of product {}", imageIds.size(), productId);
+
+        return imageRepository.findByProductIdOrderByPositionAsc(productId).stream()
+                .map(ProductImageDto::fromEntity)
+                .collect(Collectors.toList());
     }
+
+    private record StoredImage(String originalFilename, String contentType, long fileSize,
+                               String s3Key, ImageAnalyzer.ImageInfo info) {}
 }
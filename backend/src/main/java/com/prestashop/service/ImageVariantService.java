@@ -0,0 +1,226 @@
+package com.prestashop.service;
+
+import com.prestashop.entity.ImageType;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Produces resized product image variants (see {@link ImageType}).
+ * A variant is generated from the original on first request, stored back to the object storage
+ * next to the original and served from there afterwards.
+ */
+@Service
+@RequiredArgsConstructor
+public class ImageVariantService {
+    private Logger LOGGER = LoggerFactory.getLogger(getClass());
+
+    private static final float MAX_JPEG_QUALITY = 0.9f;
+
+    private final ObjectStorage objectStorage;
+
+    @Value("${image.variants.jpeg-quality:0.82}")
+    private float jpegQuality;
+
+    /** Variants being generated right now, so concurrent requests for one key share a single resize. */
+    private final ConcurrentMap<String, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Key of a variant next to its original, e.g. products/1/abc.jpg -> products/1/abc-home_default.jpg.
+     * PNG and GIF originals produce PNG variants to keep transparency; everything else becomes JPEG.
+     */
+    public static String variantKey(String originalKey, ImageType type) {
+        int slash = originalKey.lastIndexOf('/');
+        int dot = originalKey.lastIndexOf('.');
+        String base = dot > slash ? originalKey.substring(0, dot) : originalKey;
+        String extension = dot > slash ? originalKey.substring(dot + 1).toLowerCase() : "";
+        return base + "-" + type.getName() + "." + outputFormat(extension);
+    }
+
+    /**
+     * Opens the variant with its headers, generating and storing it first if it does not exist yet.
+     * Caller is responsible for closing the result.
+     */
+    public ObjectContent openVariant(String originalKey, ImageType type) throws IOException {
+        String key = variantKey(originalKey, type);
+        try {
+            return objectStorage.openObject(key);
+        } catch (FileNotFoundException e) {
+            LOGGER.debug("Variant {} not stored yet, generating from {}", key, originalKey);
+        }
+        byte[] bytes = generateOnce(originalKey, key, type);
+        return new ObjectContent(new ByteArrayInputStream(bytes), objectStorage.headObject(key));
+    }
+
+    /**
+     * Returns the stored variant's headers, generating the variant first if it does not exist yet.
+     */
+    public ObjectMetadata getVariantMetadata(String originalKey, ImageType type) throws IOException {
+        String key = variantKey(originalKey, type);
+        try {
+            return objectStorage.headObject(key);
+        } catch (FileNotFoundException e) {
+            generateOnce(originalKey, key, type);
+            return objectStorage.headObject(key);
+        }
+    }
+
+    private byte[] generateOnce(String originalKey, String variantKey, ImageType type) throws IOException {
+        CompletableFuture<byte[]> created = new CompletableFuture<>();
+        CompletableFuture<byte[]> existing = inFlight.putIfAbsent(variantKey, created);
+        if (existing != null) {
+            return await(existing);
+        }
+        try {
+            byte[] bytes;
+            try (InputStream original = objectStorage.getObjectContent(originalKey)) {
+                bytes = resize(original, type, outputFormat(variantKey));
+            }
+            objectStorage.putBytes(variantKey, bytes, contentType(variantKey));
+            LOGGER.info("Generated image variant {} ({} bytes)", variantKey, bytes.length);
+            created.complete(bytes);
+            return bytes;
+        } catch (IOException | RuntimeException e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(variantKey, created);
+        }
+    }
+
+    private byte[] await(CompletableFuture<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for image variant", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw new IOException("Failed to generate image variant: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private byte[] resize(InputStream source, ImageType type, String format) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(source)) {
+            if (input == null) {
+                throw new IOException("Unreadable image stream");
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported image format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                // ignoreMetadata: EXIF/XMP is never needed and never copied to the variant
+                reader.setInput(input, true, true);
+                int sourceWidth = reader.getWidth(0);
+                int sourceHeight = reader.getHeight(0);
+
+                // Decode large sources at a coarser sampling (still >= 2x the preset) to bound memory
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, Math.min(
+                        sourceWidth / (type.getWidth() * 2), sourceHeight / (type.getHeight() * 2)));
+                if (subsampling > 1) {
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                BufferedImage decoded = reader.read(0, param);
+                return encode(scaleToFit(decoded, type.getWidth(), type.getHeight(), format), format);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage scaleToFit(BufferedImage source, int maxWidth, int maxHeight, String format) {
+        double scale = Math.min(1.0, Math.min((double) maxWidth / source.getWidth(), (double) maxHeight / source.getHeight()));
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        // Halve step by step first; a single bilinear pass over a large ratio aliases badly
+        BufferedImage current = source;
+        while (current.getWidth() / 2 >= targetWidth && current.getHeight() / 2 >= targetHeight) {
+            current = draw(current, current.getWidth() / 2, current.getHeight() / 2, format);
+        }
+        return draw(current, targetWidth, targetHeight, format);
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height, String format) {
+        boolean alpha = "png".equals(format);
+        BufferedImage target = new BufferedImage(width, height,
+                alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            if (!alpha) {
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, width, height);
+            }
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    private byte[] encode(BufferedImage image, String format) throws IOException {
+        boolean jpeg = "jpg".equals(format);
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(jpeg ? "jpeg" : "png");
+        if (!writers.hasNext()) {
+            throw new IOException("No image writer for " + format);
+        }
+        ImageWriter writer = writers.next();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(buffer)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (jpeg) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(Math.min(jpegQuality, MAX_JPEG_QUALITY));
+                param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            }
+            // No metadata is passed, so the variant carries no EXIF, ICC or comments
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return buffer.toByteArray();
+    }
+
+    private static String outputFormat(String keyOrExtension) {
+        String extension = keyOrExtension.substring(keyOrExtension.lastIndexOf('.') + 1).toLowerCase();
+        return switch (extension) {
+            case "png", "gif" -> "png";
+            default -> "jpg";
+        };
+    }
+
+    private static String contentType(String key) {
+        return "png".equals(outputFormat(key)) ? "image/png" : "image/jpeg";
+    }
+}
@@ -0,0 +1,111 @@
+package com.prestashop.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Object storage held in memory ({@code storage.type=memory}), for tests and throwaway demo
+ * instances. Contents are lost on restart. ETags are the quoted MD5 of the content, like S3's
+ * for single-part uploads.
+ */
+@Service
+@ConditionalOnProperty(name = "storage.type", havingValue = "memory")
+public class InMemoryObjectStorage implements ObjectStorage {
+    private Logger LOGGER = LoggerFactory.getLogger(getClass());
+
+    private final Map<String, StoredObject> objects = new ConcurrentHashMap<>();
+
+    @Value("${storage.public-url-prefix:/images/}")
+    private String publicUrlPrefix;
+
+    @Override
+    public void putFile(String key, Path source, String contentType) throws IOException {
+        putBytes(key, Files.readAllBytes(source), contentType);
+    }
+
+    @Override
+    public void putStream(String key, InputStream content, long size, String contentType) throws IOException {
+        putBytes(key, content.readAllBytes(), contentType);
+    }
+
+    @Override
+    public void putBytes(String key, byte[] content, String contentType) {
+        objects.put(key, new StoredObject(content.clone(), contentType, Instant.now(), "\"" + md5Hex(content) + "\""));
+        LOGGER.debug("Stored in-memory object {} ({} bytes)", key, content.length);
+    }
+
+    @Override
+    public InputStream getObjectContent(String key) throws IOException {
+        return new ByteArrayInputStream(get(key).content());
+    }
+
+    @Override
+    public InputStream getObjectRange(String key, long start, long endInclusive) throws IOException {
+        byte[] content = get(key).content();
+        int offset = (int) Math.min(start, content.length);
+        int length = (int) Math.max(0, Math.min(endInclusive + 1, content.length) - offset);
+        return new ByteArrayInputStream(content, offset, length);
+    }
+
+    @Override
+    public ObjectMetadata headObject(String key) throws IOException {
+        StoredObject object = get(key);
+        return new ObjectMetadata(object.eTag(), object.content().length, object.lastModified(), object.contentType());
+    }
+
+    @Override
+    public boolean objectExists(String key) {
+        return objects.containsKey(key);
+    }
+
+    @Override
+    public void deleteFile(String key) {
+        objects.remove(key);
+    }
+
+    @Override
+    public Map<String, String> deleteFiles(Collection<String> keys) {
+        keys.forEach(objects::remove);
+        return Map.of();
+    }
+
+    @Override
+    public String getPublicUrl(String key) {
+        return publicUrlPrefix + key;
+    }
+
+    private StoredObject get(String key) throws FileNotFoundException {
+        StoredObject object = objects.get(key);
+        if (object == null) {
+            throw new FileNotFoundException("Object not found: " + key);
+        }
+        return object;
+    }
+
+    private static String md5Hex(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    }
+
+    private record StoredObject(byte[] content, String contentType, Instant lastModified, String eTag) {}
+}
@@ -8,21 +8,29 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
 /**
  * Migrates product images from PrestaShop legacy (fixtures or production img folder)
  * to prestashop-mod format.
+ * <p>
+ * No transaction spans the run: images are uploaded outside any transaction, and each product's
+ * rows are then written in a short transaction of their own, so a late failure does not roll back
+ * products already migrated, and a failed write releases the objects uploaded for it.
  */
 @Service
 @RequiredArgsConstructor
@@ -31,7 +39,10 @@ public class LegacyImageMigrationService {
 
     private final ProductRepository productRepository;
     private final ProductImageRepository imageRepository;
-    private final S3Service s3Service;
+    private final ObjectStorage objectStorage;
+    private final ImageObjectService imageObjectService;
+    private final ImageAnalyzer imageAnalyzer;
+    private final TransactionTemplate transactionTemplate;
 
     @Value("${legacy.migration.enabled:true}")
     private boolean migrationEnabled;
@@ -42,10 +53,22 @@ public class LegacyImageMigrationService {
     @Value("${legacy.migration.img-path:}")
     private String imgPath;
 
-    private static final Pattern IMAGE_ELEMENT = Pattern.compile(
-            "<image\\s+id=\"([^\"]+)\"\\s+id_product=\"([^\"]+)\"\\s+cover=\"([^\"]*)\"",
-            Pattern.CASE_INSENSITIVE
-    );
+    /** Max values per IN (...) list when resolving products and image counts in bulk. */
+    private static final int IN_CLAUSE_CHUNK = 1000;
+
+    /** Candidate file names for a fixture image id, in order of preference. */
+    private static final List<String> IMAGE_FILE_SUFFIXES = List.of(
+            ".jpg", ".jpeg", ".png", ".webp", "-large_default.jpg", "-medium_default.jpg");
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+
+    private static XMLInputFactory createXmlInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        // Fixture files are plain data: no DTDs, no external entities
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
 
     /**
      * Converts fixture product id (e.g. "Hummingbird_printed_t-shirt") to link_rewrite (e.g. "hummingbird-printed-t-shirt").
@@ -104,8 +127,14 @@ public class LegacyImageMigrationService {
         }
     }
 
-    @Transactional
     public int migrateImagesFromLegacy(String legacyBasePath) throws IOException {
+        return migrateImagesFromLegacy(legacyBasePath, MigrationProgress.NONE);
+    }
+
+    /**
+     * Runs the migration, reporting each image to {@code progress} and stopping early once it is cancelled.
+     */
+    public int migrateImagesFromLegacy(String legacyBasePath, MigrationProgress progress) throws IOException {
         Path base = Paths.get(legacyBasePath);
         if (!Files.isDirectory(base)) {
             throw new IOException("Legacy path is not a directory: " + legacyBasePath);
@@ -121,13 +150,13 @@ public class LegacyImageMigrationService {
         if (Files.exists(imageXmlPath) && Files.exists(fixturesImgPath)) {
             // Fixture mode: parse image.xml
             mappings = parseFixtureImageXml(imageXmlPath);
-            return migrateFixtureImages(mappings, fixturesImgPath);
+            return migrateFixtureImages(mappings, fixturesImgPath, progress);
         } else if (Files.exists(productionImgPath)) {
             // Production img path passed directly (e.g. ../prestashop-legacy/img when base is img)
             return migrateProductionImages(productionImgPath);
         } else if (Files.exists(fixturesImgPath)) {
             // Try to match by filename pattern (fixture-style names without XML)
-            return migrateFromImgFolder(fixturesImgPath);
+            return migrateFromImgFolder(fixturesImgPath, progress);
         } else if (Files.isDirectory(base.resolve("p"))) {
             return migrateProductionImages(base.resolve("p"));
         }
@@ -136,86 +165,147 @@ public class LegacyImageMigrationService {
         return 0;
     }
 
+    /**
+     * Streams image.xml with StAX and collects the {@code <image id id_product cover>} elements,
+     * without loading the whole document.
+     */
     private List<ImageMapping> parseFixtureImageXml(Path imageXmlPath) throws IOException {
-        String content = Files.readString(imageXmlPath);
         List<ImageMapping> mappings = new ArrayList<>();
-        Matcher m = IMAGE_ELEMENT.matcher(content);
-        while (m.find()) {
-            String imageId = m.group(1);
-            String productId = m.group(2);
-            String coverStr = m.group(3);
-            boolean cover = "1".equals(coverStr) || "true".equalsIgnoreCase(coverStr);
-            mappings.add(new ImageMapping(imageId, productId, cover));
+        try (InputStream in = Files.newInputStream(imageXmlPath)) {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT
+                            && "image".equalsIgnoreCase(reader.getLocalName())) {
+                        String imageId = reader.getAttributeValue(null, "id");
+                        String productId = reader.getAttributeValue(null, "id_product");
+                        String coverStr = reader.getAttributeValue(null, "cover");
+                        if (imageId == null || imageId.isEmpty() || productId == null || productId.isEmpty()) {
+                            continue;
+                        }
+                        boolean cover = "1".equals(coverStr) || "true".equalsIgnoreCase(coverStr);
+                        mappings.add(new ImageMapping(imageId, productId, cover));
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Failed to parse " + imageXmlPath + ": " + e.getMessage(), e);
         }
         return mappings;
     }
 
-    private int migrateFixtureImages(List<ImageMapping> mappings, Path imgDir) throws IOException {
+    private int migrateFixtureImages(List<ImageMapping> mappings, Path imgDir, MigrationProgress progress) throws IOException {
         if (mappings.isEmpty()) return 0;
+        progress.setTotal(mappings.size());
 
         // Group by product
         Map<String, List<ImageMapping>> byProduct = mappings.stream()
                 .collect(Collectors.groupingBy(m -> m.productId));
 
+        // One directory listing and two bulk queries instead of per-image probes and per-product lookups
+        Map<String, Path> files = indexImageDirectory(imgDir);
+        Map<String, Product> products = findProductsByLinkRewrite(byProduct.keySet().stream()
+                .map(LegacyImageMigrationService::fixtureIdToLinkRewrite)
+                .collect(Collectors.toSet()));
+        Set<Long> productsWithImages = findProductIdsWithImages(products.values());
+
         int migrated = 0;
         for (Map.Entry<String, List<ImageMapping>> entry : byProduct.entrySet()) {
+            if (progress.isCancelled()) break;
             String fixtureProductId = entry.getKey();
             String linkRewrite = fixtureIdToLinkRewrite(fixtureProductId);
 
-            Product product = productRepository.findByLinkRewrite(linkRewrite).orElse(null);
+            Product product = products.get(linkRewrite);
             if (product == null) {
                 log.debug("No product found for link_rewrite={}, skipping images", linkRewrite);
+                progress.skipped(entry.getValue().size());
                 continue;
             }
 
-            if (imageRepository.countByProductId(product.getId()) > 0) {
+            if (productsWithImages.contains(product.getId())) {
                 log.debug("Product {} already has images, skipping", linkRewrite);
+                progress.skipped(entry.getValue().size());
                 continue;
             }
 
             List<ImageMapping> productImages = entry.getValue();
             productImages.sort(Comparator.comparing(m -> m.imageId));
+            // The last image flagged as cover wins; without one, the first image is the cover
+            int coverIndex = 0;
+            for (int i = 0; i < productImages.size(); i++) {
+                if (productImages.get(i).cover) coverIndex = i;
+            }
 
+            List<ProductImage> stored = new ArrayList<>();
             for (int i = 0; i < productImages.size(); i++) {
                 ImageMapping im = productImages.get(i);
-                Path imageFile = findLegacyImageFile(imgDir, im.imageId);
+                Path imageFile = findLegacyImageFile(files, im.imageId);
                 if (imageFile != null) {
                     try {
-                        migrateSingleImage(product, imageFile, im.cover, i);
-                        migrated++;
+                        stored.add(storeImage(product, imageFile, i == coverIndex, i));
                     } catch (IOException e) {
                         log.warn("Failed to migrate image {}: {}", im.imageId, e.getMessage());
+                        progress.failed();
                     }
                 } else {
                     log.debug("Image file not found for {}", im.imageId);
+                    progress.skipped(1);
                 }
             }
+            migrated += saveImages(product, stored, progress);
         }
         return migrated;
     }
 
-    private Path findLegacyImageFile(Path imgDir, String imageId) {
-        // Try base image first (e.g. Hummingbird_printed_t-shirt.jpg)
-        Path base = imgDir.resolve(imageId + ".jpg");
-        if (Files.exists(base)) return base;
-        // Try without extension variations
-        for (String ext : List.of(".jpeg", ".png", ".webp")) {
-            Path p = imgDir.resolve(imageId + ext);
-            if (Files.exists(p)) return p;
+    /**
+     * Lists the image directory once into a file name -> path index.
+     */
+    private Map<String, Path> indexImageDirectory(Path imgDir) throws IOException {
+        try (Stream<Path> listing = Files.list(imgDir)) {
+            Map<String, Path> index = listing
+                    .filter(Files::isRegularFile)
+                    .collect(Collectors.toMap(p -> p.getFileName().toString(), p -> p, (a, b) -> a, HashMap::new));
+            log.debug("Indexed {} files in {}", index.size(), imgDir);
+            return index;
+        }
+    }
+
+    private Path findLegacyImageFile(Map<String, Path> files, String imageId) {
+        // Base image first (e.g. Hummingbird_printed_t-shirt.jpg), then other extensions, then larger resized copies
+        for (String suffix : IMAGE_FILE_SUFFIXES) {
+            Path p = files.get(imageId + suffix);
+            if (p != null) return p;
         }
-        // Try -large_default or similar (prefer larger)
-        Path large = imgDir.resolve(imageId + "-large_default.jpg");
-        if (Files.exists(large)) return large;
-        Path medium = imgDir.resolve(imageId + "-medium_default.jpg");
-        if (Files.exists(medium)) return medium;
         return null;
     }
 
+    private Map<String, Product> findProductsByLinkRewrite(Collection<String> linkRewrites) {
+        Map<String, Product> products = new HashMap<>();
+        List<String> values = new ArrayList<>(linkRewrites);
+        for (int from = 0; from < values.size(); from += IN_CLAUSE_CHUNK) {
+            List<String> chunk = values.subList(from, Math.min(values.size(), from + IN_CLAUSE_CHUNK));
+            productRepository.findByLinkRewriteIn(chunk).forEach(p -> products.put(p.getLinkRewrite(), p));
+        }
+        return products;
+    }
+
+    private Set<Long> findProductIdsWithImages(Collection<Product> products) {
+        Set<Long> ids = new HashSet<>();
+        List<Long> values = products.stream().map(Product::getId).toList();
+        for (int from = 0; from < values.size(); from += IN_CLAUSE_CHUNK) {
+            ids.addAll(imageRepository.findProductIdsWithImages(
+                    values.subList(from, Math.min(values.size(), from + IN_CLAUSE_CHUNK))));
+        }
+        return ids;
+    }
+
     /**
-     * Migrates a single image from legacy path directly to S3 (no local folder).
-     * When DB has no products and migration runs, images go straight to the S3 bucket.
+     * Uploads a single image from the legacy path directly to S3 (no local folder) and returns its
+     * row, not saved yet. When DB has no products and migration runs, images go straight to the S3 bucket.
      */
-    private void migrateSingleImage(Product product, Path sourceFile, boolean cover, int position) throws IOException {
+    private ProductImage storeImage(Product product, Path sourceFile, boolean cover, int position) throws IOException {
         String fn = sourceFile.getFileName().toString();
         String ext = "";
         int dot = fn.lastIndexOf('.');
@@ -223,30 +313,60 @@ public class LegacyImageMigrationService {
         String mimeType = guessMimeType(ext);
         long fileSize = Files.size(sourceFile);
 
-        if (cover) {
-            imageRepository.clearCoverByProductId(product.getId());
-        }
-
-        // Upload directly to S3 (no local folder)
-        String s3Key = s3Service.uploadFromPath(sourceFile, product.getId(), mimeType);
-        String s3Url = s3Service.getPublicUrl(s3Key);
+        // Upload directly to S3 (no local folder); fixtures reused across products are stored once
+        String s3Key = imageObjectService.store(sourceFile, mimeType);
+        String s3Url = objectStorage.getPublicUrl(s3Key);
         String filename = s3Key.substring(s3Key.lastIndexOf('/') + 1);
+        ImageAnalyzer.ImageInfo info = imageAnalyzer.analyze(sourceFile);
 
-        ProductImage image = ProductImage.builder()
+        return ProductImage.builder()
                 .product(product)
                 .filename(filename)
                 .originalFilename(fn)
                 .position(position)
-                .cover(cover || position == 0)
+                .cover(cover)
                 .legend(null)
                 .mimeType(mimeType)
                 .fileSize(fileSize)
                 .s3Key(s3Key)
                 .s3Url(s3Url)
+                .width(info.width())
+                .height(info.height())
+                .placeholder(info.placeholder())
                 .build();
+    }
 
-        imageRepository.save(image);
-        log.debug("Migrated image to S3: product {} -> {}", product.getLinkRewrite(), s3Key);
+    /**
+     * Writes one product's uploaded images in a short transaction and returns how many were saved.
+     * If the write fails, the references taken for the uploaded objects are dropped again.
+     */
+    private int saveImages(Product product, List<ProductImage> images, MigrationProgress progress) {
+        if (images.isEmpty()) return 0;
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (images.stream().anyMatch(ProductImage::getCover)) {
+                    imageRepository.clearCoverByProductId(product.getId());
+                }
+                imageRepository.saveAll(images);
+            });
+        } catch (RuntimeException e) {
+            log.warn("Failed to save {} migrated images for product {}: {}",
+                    images.size(), product.getLinkRewrite(), e.getMessage());
+            for (ProductImage image : images) {
+                try {
+                    imageObjectService.discard(image.getS3Key());
+                } catch (RuntimeException cleanup) {
+                    log.error("Failed to release unused image object {}", image.getS3Key(), cleanup);
+                }
+                progress.failed();
+            }
+            return 0;
+        }
+        images.forEach(image -> {
+            log.debug("Migrated image to S3: product {} -> {}", product.getLinkRewrite(), image.getS3Key());
+            progress.success();
+        });
+        return images.size();
     }
 
     private String guessMimeType(String ext) {
@@ -267,7 +387,7 @@ public class LegacyImageMigrationService {
         return 0;
     }
 
-    private int migrateFromImgFolder(Path imgDir) throws IOException {
+    private int migrateFromImgFolder(Path imgDir, MigrationProgress progress) throws IOException {
         // Scan img/p/ for *.jpg, derive product from filename (Hummingbird_printed_t-shirt -> product)
         Set<String> processedProducts = new HashSet<>();
         int migrated = 0;
@@ -283,21 +403,32 @@ public class LegacyImageMigrationService {
                     .sorted()
                     .toList();
 
+            Map<String, Product> products = findProductsByLinkRewrite(jpgFiles.stream()
+                    .map(file -> fixtureIdToLinkRewrite(file.getFileName().toString().replaceFirst("\\.jpg$", "")))
+                    .collect(Collectors.toSet()));
+            Set<Long> productsWithImages = findProductIdsWithImages(products.values());
+
+            progress.setTotal(jpgFiles.size());
             for (Path file : jpgFiles) {
+                if (progress.isCancelled()) break;
                 String baseName = file.getFileName().toString().replaceFirst("\\.jpg$", "");
                 String linkRewrite = fixtureIdToLinkRewrite(baseName);
 
-                Product product = productRepository.findByLinkRewrite(linkRewrite).orElse(null);
-                if (product == null) continue;
-                if (processedProducts.contains(linkRewrite)) continue;
-                if (imageRepository.countByProductId(product.getId()) > 0) continue;
+                Product product = products.get(linkRewrite);
+                if (product == null
+                        || processedProducts.contains(linkRewrite)
+                        || productsWithImages.contains(product.getId())) {
+                    progress.skipped(1);
+                    continue;
+                }
 
                 try {
-                    migrateSingleImage(product, file, true, 0);
-                    migrated++;
+                    ProductImage image = storeImage(product, file, true, 0);
                     processedProducts.add(linkRewrite);
+                    migrated += saveImages(product, List.of(image), progress);
                 } catch (IOException e) {
                     log.warn("Failed to migrate {}: {}", baseName, e.getMessage());
+                    progress.failed();
                 }
             }
         }
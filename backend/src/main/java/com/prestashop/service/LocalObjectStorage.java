@@ -0,0 +1,168 @@
+package com.prestashop.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Object storage in a local directory, one file per key ({@code storage.type=local}).
+ * Writes go to a temporary file in the target directory and are moved into place atomically,
+ * so readers never see a partial object. ImageController serves these files with sendfile /
+ * FileChannel.transferTo (see {@link #localPath(String)}), bypassing the image cache.
+ * <p>
+ * The default root is the legacy upload directory, so images stored there before S3
+ * ({@code products/<id>/<file>}) are served under the same keys.
+ */
+@Service
+@ConditionalOnProperty(name = "storage.type", havingValue = "local")
+public class LocalObjectStorage implements ObjectStorage {
+    private Logger LOGGER = LoggerFactory.getLogger(getClass());
+
+    @Value("${storage.local.path:${upload.images.path:./uploads/images}}")
+    private String rootPath;
+
+    @Value("${storage.public-url-prefix:/images/}")
+    private String publicUrlPrefix;
+
+    private Path root;
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Paths.get(rootPath).toAbsolutePath().normalize();
+        Files.createDirectories(root);
+        LOGGER.info("Local object storage at {}", root);
+    }
+
+    @Override
+    public void putFile(String key, Path source, String contentType) throws IOException {
+        write(key, temp -> Files.copy(source, temp, StandardCopyOption.REPLACE_EXISTING));
+    }
+
+    @Override
+    public void putStream(String key, InputStream content, long size, String contentType) throws IOException {
+        write(key, temp -> Files.copy(content, temp, StandardCopyOption.REPLACE_EXISTING));
+    }
+
+    @Override
+    public void putBytes(String key, byte[] content, String contentType) throws IOException {
+        write(key, temp -> Files.write(temp, content));
+    }
+
+    @Override
+    public InputStream getObjectContent(String key) throws IOException {
+        try {
+            return Files.newInputStream(resolve(key));
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException("Object not found: " + key);
+        }
+    }
+
+    @Override
+    public InputStream getObjectRange(String key, long start, long endInclusive) throws IOException {
+        try {
+            return new FileRangeInputStream(resolve(key), start, endInclusive - start + 1);
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException("Object not found: " + key);
+        }
+    }
+
+    @Override
+    public ObjectMetadata headObject(String key) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(resolve(key), BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException("Object not found: " + key);
+        }
+        if (!attributes.isRegularFile()) {
+            throw new FileNotFoundException("Object not found: " + key);
+        }
+        // Objects are replaced by an atomic move, so size and mtime change with the content
+        long modified = attributes.lastModifiedTime().toMillis();
+        String eTag = "\"" + Long.toHexString(attributes.size()) + "-" + Long.toHexString(modified) + "\"";
+        return new ObjectMetadata(eTag, attributes.size(), attributes.lastModifiedTime().toInstant(),
+                URLConnection.guessContentTypeFromName(key));
+    }
+
+    @Override
+    public boolean objectExists(String key) {
+        return Files.isRegularFile(resolve(key));
+    }
+
+    @Override
+    public void deleteFile(String key) {
+        try {
+            Files.deleteIfExists(resolve(key));
+            LOGGER.debug("Deleted local object {}", key);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete " + key, e);
+        }
+    }
+
+    @Override
+    public Map<String, String> deleteFiles(Collection<String> keys) {
+        Map<String, String> failed = new LinkedHashMap<>();
+        for (String key : keys) {
+            try {
+                deleteFile(key);
+            } catch (RuntimeException e) {
+                failed.put(key, e.getMessage());
+            }
+        }
+        return failed;
+    }
+
+    @Override
+    public String getPublicUrl(String key) {
+        return publicUrlPrefix + key;
+    }
+
+    @Override
+    public Path localPath(String key) {
+        return resolve(key);
+    }
+
+    private Path resolve(String key) {
+        Path path = root.resolve(key).normalize();
+        if (key.isEmpty() || !path.startsWith(root) || path.equals(root)) {
+            throw new IllegalArgumentException("Invalid object key: " + key);
+        }
+        return path;
+    }
+
+    private void write(String key, Writer writer) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), ".upload-", ".tmp");
+        try {
+            writer.write(temp);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            LOGGER.debug("Stored local object {} ({} bytes)", key, Files.size(target));
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Writer {
+        void write(Path temp) throws IOException;
+    }
+}
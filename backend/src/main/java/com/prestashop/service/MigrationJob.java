@@ -0,0 +1,110 @@
+package com.prestashop.service;
+
+import lombok.Getter;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A migration running (or finished) on the background executor of {@link MigrationJobService}.
+ * The first {@link #MAX_ERRORS} per-item errors are kept for the job report.
+ */
+@Getter
+public class MigrationJob implements MigrationProgress {
+
+    public enum Kind { LEGACY_IMAGES, IMAGES_TO_S3, PRODUCT_IMPORT, PRODUCT_FEED, SITEMAP }
+
+    public enum Status { RUNNING, COMPLETED, FAILED, CANCELLED }
+
+    public static final int MAX_ERRORS = 100;
+
+    private final String id = UUID.randomUUID().toString();
+    private final Kind kind;
+    private final Instant startedAt = Instant.now();
+    private volatile Instant finishedAt;
+    private volatile Status status = Status.RUNNING;
+    private volatile String message;
+    private volatile long total = -1;
+    private volatile boolean cancelled;
+
+    private final AtomicLong successCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong skippedCount = new AtomicLong();
+    private final Queue<String> errors = new ConcurrentLinkedQueue<>();
+
+    MigrationJob(Kind kind) {
+        this.kind = kind;
+    }
+
+    @Override
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    @Override
+    public void success() {
+        successCount.incrementAndGet();
+    }
+
+    @Override
+    public void failed() {
+        failedCount.incrementAndGet();
+    }
+
+    @Override
+    public void failed(String error) {
+        // The count is taken first, so at most MAX_ERRORS messages are ever queued
+        if (failedCount.incrementAndGet() <= MAX_ERRORS) {
+            errors.add(error);
+        }
+    }
+
+    @Override
+    public void skipped(long count) {
+        skippedCount.addAndGet(count);
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    void cancel() {
+        cancelled = true;
+    }
+
+    void finish(Status status, String message) {
+        this.message = message;
+        this.finishedAt = Instant.now();
+        this.status = status;
+    }
+
+    public List<String> getErrors() {
+        return List.copyOf(errors);
+    }
+
+    public long getProcessed() {
+        return successCount.get() + failedCount.get() + skippedCount.get();
+    }
+
+    /** Items per second since the job started. */
+    public double getThroughput() {
+        Instant end = finishedAt != null ? finishedAt : Instant.now();
+        double seconds = Duration.between(startedAt, end).toMillis() / 1000.0;
+        return seconds > 0 ? getProcessed() / seconds : 0;
+    }
+
+    /** Estimated seconds remaining, or null while the total or the rate is unknown. */
+    public Long getEtaSeconds() {
+        double throughput = getThroughput();
+        if (status != Status.RUNNING || total < 0 || throughput <= 0) {
+            return null;
+        }
+        return Math.round(Math.max(0, total - getProcessed()) / throughput);
+    }
+}
@@ -0,0 +1,141 @@
+package com.prestashop.service;
+
+import com.prestashop.dto.MigrationJobDto;
+import com.prestashop.exception.ResourceNotFoundException;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Runs migrations as background jobs so the triggering request returns immediately.
+ * At most one job of each kind runs at a time; finished jobs are kept for polling
+ * until {@link #MAX_FINISHED_JOBS} newer ones have replaced them.
+ */
+@Service
+public class MigrationJobService {
+    private Logger LOGGER = LoggerFactory.getLogger(getClass());
+
+    private static final int MAX_FINISHED_JOBS = 50;
+
+    private final Map<String, MigrationJob> jobs = new ConcurrentHashMap<>();
+    private final Map<MigrationJob.Kind, MigrationJob> running = new ConcurrentHashMap<>();
+    private final ExecutorService executor;
+
+    public MigrationJobService() {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "migration-job-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running.values().forEach(MigrationJob::cancel);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Starts a job running {@code work}, which returns a summary message.
+     *
+     * @throws IllegalStateException if a job of the same kind is already running
+     */
+    public MigrationJob start(MigrationJob.Kind kind, Function<MigrationJob, String> work) {
+        MigrationJob job = new MigrationJob(kind);
+        MigrationJob existing = running.putIfAbsent(kind, job);
+        if (existing != null) {
+            throw new IllegalStateException("A " + kind + " migration is already running (job " + existing.getId() + ")");
+        }
+        jobs.put(job.getId(), job);
+        pruneFinishedJobs();
+
+        LOGGER.info("Starting {} migration job {}", kind, job.getId());
+        try {
+            executor.execute(() -> run(job, work));
+        } catch (RuntimeException e) {
+            running.remove(kind, job);
+            job.finish(MigrationJob.Status.FAILED, "Could not start job: " + e.getMessage());
+            throw e;
+        }
+        return job;
+    }
+
+    public MigrationJob getJob(String id) {
+        MigrationJob job = jobs.get(id);
+        if (job == null) {
+            throw new ResourceNotFoundException("Migration job not found: " + id);
+        }
+        return job;
+    }
+
+    public List<MigrationJob> getJobs() {
+        return jobs.values().stream()
+                .sorted(Comparator.comparing(MigrationJob::getStartedAt).reversed())
+                .toList();
+    }
+
+    /**
+     * Requests cancellation; the migration stops at its next item boundary and keeps what it has done.
+     */
+    public MigrationJob cancel(String id) {
+        MigrationJob job = getJob(id);
+        if (job.getStatus() == MigrationJob.Status.RUNNING) {
+            LOGGER.info("Cancelling {} migration job {}", job.getKind(), id);
+            job.cancel();
+        }
+        return job;
+    }
+
+    public MigrationJobDto toDto(MigrationJob job) {
+        return MigrationJobDto.builder()
+                .id(job.getId())
+                .kind(job.getKind().name())
+                .status(job.getStatus().name())
+                .total(job.getTotal())
+                .processed(job.getProcessed())
+                .success(job.getSuccessCount().get())
+                .failed(job.getFailedCount().get())
+                .skipped(job.getSkippedCount().get())
+                .throughput(Math.round(job.getThroughput() * 100) / 100.0)
+                .etaSeconds(job.getEtaSeconds())
+                .startedAt(job.getStartedAt())
+                .finishedAt(job.getFinishedAt())
+                .message(job.getMessage())
+                .errors(job.getErrors())
+                .build();
+    }
+
+    private void run(MigrationJob job, Function<MigrationJob, String> work) {
+        try {
+            String message = work.apply(job);
+            job.finish(job.isCancelled() ? MigrationJob.Status.CANCELLED : MigrationJob.Status.COMPLETED, message);
+            LOGGER.info("{} migration job {} {}: {}", job.getKind(), job.getId(), job.getStatus(), message);
+        } catch (Exception e) {
+            LOGGER.error("{} migration job {} failed", job.getKind(), job.getId(), e);
+            job.finish(MigrationJob.Status.FAILED, e.getMessage());
+        } finally {
+            running.remove(job.getKind(), job);
+        }
+    }
+
+    private void pruneFinishedJobs() {
+        List<MigrationJob> finished = jobs.values().stream()
+                .filter(job -> job.getStatus() != MigrationJob.Status.RUNNING)
+                .sorted(Comparator.comparing(MigrationJob::getStartedAt))
+                .toList();
+        for (int i = 0; i < finished.size() - MAX_FINISHED_JOBS; i++) {
+            jobs.remove(finished.get(i).getId());
+        }
+    }
+}
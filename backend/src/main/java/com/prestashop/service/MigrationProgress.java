@@ -0,0 +1,30 @@
+package com.prestashop.service;
+
+/**
+ * Progress sink for long-running migrations. Implementations must be thread-safe,
+ * since parallel migrations report from several workers.
+ */
+public interface MigrationProgress {
+
+    /** For callers that do not track progress (e.g. the startup migration). */
+    MigrationProgress NONE = new MigrationProgress() {};
+
+    /** Sets the expected number of items, when known. */
+    default void setTotal(long total) {}
+
+    default void success() {}
+
+    default void failed() {}
+
+    /** Counts a failed item and records why, for jobs that report per-item errors. */
+    default void failed(String error) {
+        failed();
+    }
+
+    default void skipped(long count) {}
+
+    /** Migrations check this between items and stop early when it becomes true. */
+    default boolean isCancelled() {
+        return false;
+    }
+}
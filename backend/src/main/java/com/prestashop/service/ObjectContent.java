@@ -0,0 +1,16 @@
+package com.prestashop.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An opened object: its content stream and the headers of the same read. Closing it closes the stream.
+ */
+public record ObjectContent(InputStream content, ObjectMetadata metadata) implements Closeable {
+
+    @Override
+    public void close() throws IOException {
+        content.close();
+    }
+}
@@ -0,0 +1,8 @@
+package com.prestashop.service;
+
+import java.time.Instant;
+
+/**
+ * Object headers needed for HTTP delivery (validators, length, type), as reported by the object store.
+ */
+public record ObjectMetadata(String eTag, long contentLength, Instant lastModified, String contentType) {}
@@ -0,0 +1,84 @@
+package com.prestashop.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Object store behind every image code path. Keys are relative paths such as
+ * {@code products/12/<file>.jpg} or {@code objects/3f/<sha-256>.jpg}; missing objects are
+ * reported with FileNotFoundException.
+ * <p>
+ * The implementation is selected with {@code storage.type}: {@code s3} ({@link S3Service}, the
+ * default), {@code local} ({@link LocalObjectStorage}, for single-node deployments) or
+ * {@code memory} ({@link InMemoryObjectStorage}, for tests and demos).
+ */
+public interface ObjectStorage {
+
+    /** Most keys {@link #deleteFiles(Collection)} accepts in one call. */
+    int MAX_DELETE_BATCH = 1000;
+
+    /**
+     * Stores a local file under the given key without reading it into memory as a whole.
+     */
+    void putFile(String key, Path source, String contentType) throws IOException;
+
+    /**
+     * Stores content of known length under the given key.
+     */
+    void putStream(String key, InputStream content, long size, String contentType) throws IOException;
+
+    /**
+     * Stores in-memory content under the given key (e.g. generated image variants).
+     */
+    void putBytes(String key, byte[] content, String contentType) throws IOException;
+
+    /**
+     * Opens the object content. Caller is responsible for closing the stream.
+     */
+    InputStream getObjectContent(String key) throws IOException;
+
+    /**
+     * Opens a byte range of the object (both offsets inclusive). Caller is responsible for closing the stream.
+     */
+    InputStream getObjectRange(String key, long start, long endInclusive) throws IOException;
+
+    /**
+     * Opens the object content together with its headers. Stores whose reads carry the headers
+     * answer with one request; the default reads them separately. Caller must close the result.
+     */
+    default ObjectContent openObject(String key) throws IOException {
+        ObjectMetadata metadata = headObject(key);
+        return new ObjectContent(getObjectContent(key), metadata);
+    }
+
+    /**
+     * Reads the object's validators, length and type without reading its content.
+     */
+    ObjectMetadata headObject(String key) throws IOException;
+
+    boolean objectExists(String key);
+
+    void deleteFile(String key);
+
+    /**
+     * Deletes up to {@link #MAX_DELETE_BATCH} objects. Returns the keys that could not be deleted,
+     * with the error for each; keys that do not exist count as deleted.
+     */
+    Map<String, String> deleteFiles(Collection<String> keys);
+
+    /**
+     * URL clients fetch the object from: the bucket URL for S3, the application's /images/ path otherwise.
+     */
+    String getPublicUrl(String key);
+
+    /**
+     * The file holding the object when the store is the local filesystem, so it can be served
+     * without copying through the JVM; null for remote or in-memory stores.
+     */
+    default Path localPath(String key) {
+        return null;
+    }
+}
@@ -0,0 +1,127 @@
+package com.prestashop.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.prestashop.dto.ProductExportRow;
+import com.prestashop.entity.Product;
+import com.prestashop.repository.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streams the whole catalog as CSV or JSON Lines, in the format {@link ProductImportService} reads.
+ * <p>
+ * Products are read in keyset pages of {@code export.products.chunk-size} ({@code id > last id},
+ * never OFFSET), each in its own short read-only transaction: the page and its categories,
+ * variants and images are loaded with four queries, written out, and the persistence context is
+ * discarded with the transaction. Heap use is bounded by one page whatever the catalog size, and
+ * no connection is held while the client reads.
+ */
+@Service
+@RequiredArgsConstructor
+public class ProductExportService {
+    private Logger LOGGER = LoggerFactory.getLogger(getClass());
+
+    private static final List<String> CSV_HEADER = List.of(
+            "id", "name", "reference", "link_rewrite", "price", "wholesale_price", "quantity", "minimal_quantity",
+            "ean13", "isbn", "upc", "weight", "width", "height", "depth", "active", "visibility", "condition",
+            "product_type", "on_sale", "online_only", "default_category", "categories", "description_short",
+            "description", "meta_title", "meta_description", "variants", "images");
+
+    private final ProductRepository productRepository;
+    private final ObjectMapper objectMapper;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${export.products.chunk-size:500}")
+    private int chunkSize;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    public void init() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Writes every product to {@code out} and returns the number written. The stream is flushed
+     * after each page but not closed.
+     */
+    public long export(CatalogFormat format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        CsvWriter csv = format == CatalogFormat.CSV ? new CsvWriter(writer) : null;
+        if (csv != null) {
+            csv.write(CSV_HEADER);
+        }
+
+        long exported = 0;
+        long afterId = 0;
+        List<ProductExportRow> page;
+        do {
+            long after = afterId;
+            page = readOnlyTransaction.execute(status -> loadPage(after));
+            for (ProductExportRow row : page) {
+                if (csv != null) {
+                    csv.write(csvFields(row));
+                } else {
+                    writer.write(objectMapper.writeValueAsString(row));
+                    writer.write('\n');
+                }
+            }
+            writer.flush();
+            exported += page.size();
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == chunkSize);
+
+        LOGGER.info("Exported {} products as {}", exported, format);
+        return exported;
+    }
+
+    private List<ProductExportRow> loadPage(long afterId) {
+        List<Product> products = productRepository.findPageAfter(afterId, PageRequest.of(0, chunkSize));
+        if (products.isEmpty()) {
+            return List.of();
+        }
+        List<Long> ids = products.stream().map(Product::getId).toList();
+        productRepository.fetchCategories(ids);
+        productRepository.fetchAttributes(ids);
+        productRepository.fetchImages(ids);
+        return products.stream().map(ProductExportRow::fromEntity).toList();
+    }
+
+    /** Fields in {@link #CSV_HEADER} order; list values are joined with {@code |}, variants are a JSON array. */
+    private List<Object> csvFields(ProductExportRow row) throws IOException {
+        return Arrays.asList(
+                row.getId(), row.getName(), row.getReference(), row.getLinkRewrite(),
+                plain(row.getPrice()), plain(row.getWholesalePrice()), row.getQuantity(), row.getMinimalQuantity(),
+                row.getEan13(), row.getIsbn(), row.getUpc(),
+                plain(row.getWeight()), plain(row.getWidth()), plain(row.getHeight()), plain(row.getDepth()),
+                row.getActive(), row.getVisibility(), row.getCondition(), row.getProductType(),
+                row.getOnSale(), row.getOnlineOnly(), row.getDefaultCategory(), String.join("|", row.getCategories()),
+                row.getDescriptionShort(), row.getDescription(), row.getMetaTitle(), row.getMetaDescription(),
+                row.getVariants().isEmpty() ? null : objectMapper.writeValueAsString(row.getVariants()),
+                String.join("|", row.getImages()));
+    }
+
+    private static String plain(BigDecimal value) {
+        return value != null ? value.stripTrailingZeros().toPlainString() : null;
+    }
+}
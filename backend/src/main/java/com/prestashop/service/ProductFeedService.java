@@ -0,0 +1,576 @@
+package com.prestashop.service;
+
+import com.prestashop.entity.Product;
+import com.prestashop.entity.ProductAttribute;
+import com.prestashop.entity.ProductImage;
+import com.prestashop.entity.SpecificPrice;
+import com.prestashop.repository.ProductRepository;
+import com.prestashop.repository.SpecificPriceRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Shopping feed of active, visible products in Google Merchant format, written as a TSV file and
+ * an RSS 2.0 XML file: one item per variant (or per product without variants), with the effective
+ * price from specific prices and the cover image.
+ * <p>
+ * The TSV file, sorted by product id, is also the feed's state. A build walks the ids of the
+ * products that belong in the feed and merges, in one forward pass, entries re-rendered from the
+ * database for products updated since the last build (by {@code date_upd}, plus products whose
+ * specific prices started or ended since) with entries copied from the previous TSV file; products
+ * that left the feed are dropped. Products are read in keyset pages, each in its own short
+ * read-only transaction, so memory stays flat. Variant and cover image changes set the product's
+ * {@code date_upd}; changes that do not (other image edits, specific price edits) are picked up
+ * by the periodic full rebuild.
+ * <p>
+ * Every build writes a new numbered generation and keeps the previous one, so a download in
+ * progress (sent with sendfile) never sees its file replaced.
+ */
+@Service
+@RequiredArgsConstructor
+public class ProductFeedService {
+    private Logger LOGGER = LoggerFactory.getLogger(getClass());
+
+    public static final List<String> COLUMNS = List.of(
+            "id", "item_group_id", "title", "description", "link", "image_link", "availability",
+            "condition", "price", "sale_price", "gtin", "mpn");
+
+    private static final String STATE_FILE = "feed.properties";
+    private static final Pattern GENERATION_FILE = Pattern.compile("products-(\\d+)\\.(tsv|xml)");
+    private static final Pattern HTML_TAG = Pattern.compile("<[^>]*>");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final int MAX_TITLE_LENGTH = 150;
+    private static final int MAX_DESCRIPTION_LENGTH = 5000;
+    private static final int ID_PAGE_SIZE = 10000;
+
+    private final ProductRepository productRepository;
+    private final SpecificPriceRepository specificPriceRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${feed.enabled:true}")
+    private boolean enabled;
+
+    @Value("${feed.path:./feeds}")
+    private String feedPath;
+
+    @Value("${feed.title:PrestaShop}")
+    private String title;
+
+    @Value("${feed.site-url:http://localhost:3000}")
+    private String siteUrl;
+
+    @Value("${feed.asset-url:http://localhost:8080}")
+    private String assetUrl;
+
+    @Value("${feed.currency:EUR}")
+    private String currency;
+
+    @Value("${feed.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${feed.overlap-seconds:300}")
+    private long overlapSeconds;
+
+    @Value("${feed.full-rebuild-hours:24}")
+    private long fullRebuildHours;
+
+    private final ReentrantLock building = new ReentrantLock();
+    private TransactionTemplate readOnlyTransaction;
+    private Path directory;
+    private volatile Generation current;
+
+    /** A finished build: its files, when it started, and when the last full build started. */
+    public record Generation(long number, LocalDateTime startedAt, LocalDateTime fullBuildAt, long items,
+                             Path tsv, Path xml) {}
+
+    @PostConstruct
+    public void init() throws IOException {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        directory = Paths.get(feedPath).toAbsolutePath().normalize();
+        Files.createDirectories(directory);
+        current = loadState();
+        if (current != null) {
+            LOGGER.info("Product feed generation {} ({} items) at {}", current.number(), current.items(), directory);
+        }
+    }
+
+    /** The latest finished feed, or null before the first build. */
+    public Generation current() {
+        return current;
+    }
+
+    public boolean isBuilding() {
+        return building.isLocked();
+    }
+
+    @Scheduled(initialDelayString = "${feed.initial-delay-ms:60000}", fixedDelayString = "${feed.interval-ms:3600000}")
+    public void scheduledBuild() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            build(false, MigrationProgress.NONE);
+        } catch (IllegalStateException e) {
+            LOGGER.info("Skipping scheduled feed build: {}", e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Product feed build failed", e);
+        }
+    }
+
+    /**
+     * Builds a new feed generation, incrementally unless {@code full} is set, there is no previous
+     * feed, or the last full build is older than {@code feed.full-rebuild-hours}. Returns a summary.
+     *
+     * @throws IllegalStateException if a build is already running
+     */
+    public String build(boolean full, MigrationProgress progress) throws IOException {
+        if (!building.tryLock()) {
+            throw new IllegalStateException("The product feed is already being built");
+        }
+        try {
+            return doBuild(full, progress);
+        } finally {
+            building.unlock();
+        }
+    }
+
+    private String doBuild(boolean full, MigrationProgress progress) throws IOException {
+        Generation previous = current;
+        LocalDateTime startedAt = LocalDateTime.now();
+        boolean fullBuild = full || previous == null || !Files.isRegularFile(previous.tsv())
+                || previous.fullBuildAt().isBefore(startedAt.minusHours(fullRebuildHours));
+        // The overlap covers transactions that set date_upd before the last build started but committed after it
+        LocalDateTime since = fullBuild ? null : previous.startedAt().minusSeconds(overlapSeconds);
+
+        long number = previous != null ? previous.number() + 1 : 1;
+        Path tsv = directory.resolve("products-" + number + ".tsv");
+        Path xml = directory.resolve("products-" + number + ".xml");
+        Path tsvTemp = directory.resolve(tsv.getFileName() + ".tmp");
+        Path xmlTemp = directory.resolve(xml.getFileName() + ".tmp");
+
+        BuildCounts counts = new BuildCounts();
+        try (BufferedWriter tsvOut = Files.newBufferedWriter(tsvTemp, StandardCharsets.UTF_8);
+             BufferedWriter xmlOut = Files.newBufferedWriter(xmlTemp, StandardCharsets.UTF_8);
+             PreviousEntries old = new PreviousEntries(fullBuild ? null : previous.tsv())) {
+            tsvOut.write(String.join("\t", COLUMNS));
+            tsvOut.write('\n');
+            writeXmlHeader(xmlOut);
+
+            ChangedEntries changed = new ChangedEntries(since, startedAt);
+            FeedIds ids = new FeedIds();
+            long id;
+            while ((id = ids.next()) > 0) {
+                if (progress.isCancelled()) {
+                    throw new IllegalStateException("Feed build cancelled");
+                }
+                List<String> lines = changed.take(id);
+                if (lines != null) {
+                    counts.rendered++;
+                    progress.success();
+                } else {
+                    lines = old.take(id);
+                    if (lines != null) {
+                        counts.copied++;
+                        progress.skipped(1);
+                    } else {
+                        // In the feed now but neither changed nor in the last build (e.g. a race with an update)
+                        long missing = id;
+                        lines = readOnlyTransaction.execute(status -> renderProducts(List.of(missing)))
+                                .getOrDefault(missing, List.of());
+                        counts.rendered++;
+                        progress.success();
+                    }
+                }
+                for (String line : lines) {
+                    tsvOut.write(line);
+                    tsvOut.write('\n');
+                    writeXmlItem(xmlOut, line);
+                    counts.items++;
+                }
+            }
+            xmlOut.write("</channel>\n</rss>\n");
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tsvTemp);
+            Files.deleteIfExists(xmlTemp);
+            throw e;
+        }
+
+        Files.move(tsvTemp, tsv, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        Files.move(xmlTemp, xml, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        Generation generation = new Generation(number, startedAt, fullBuild ? startedAt : previous.fullBuildAt(),
+                counts.items, tsv, xml);
+        saveState(generation);
+        current = generation;
+        deleteOldGenerations(number - 1);
+
+        String summary = String.format("Feed generation %d (%s): %d items, %d products rendered, %d copied",
+                number, fullBuild ? "full" : "incremental", counts.items, counts.rendered, counts.copied);
+        LOGGER.info(summary);
+        return summary;
+    }
+
+    // Rendering
+
+    /** TSV lines of the given products, keyed by product id; products must be loaded with their variants and images. */
+    private Map<Long, List<String>> render(List<Product> products, LocalDateTime now) {
+        List<Long> ids = products.stream().map(Product::getId).toList();
+        Map<Long, List<SpecificPrice>> prices = specificPriceRepository.findActiveByProductIdIn(ids, now).stream()
+                .collect(Collectors.groupingBy(price -> price.getProduct().getId()));
+        Map<Long, List<String>> entries = new LinkedHashMap<>();
+        for (Product product : products) {
+            entries.put(product.getId(), renderProduct(product, prices.getOrDefault(product.getId(), List.of())));
+        }
+        return entries;
+    }
+
+    private Map<Long, List<String>> renderProducts(List<Long> ids) {
+        List<Product> products = productRepository.fetchAttributes(ids);
+        productRepository.fetchImages(ids);
+        return render(products, LocalDateTime.now());
+    }
+
+    private List<String> renderProduct(Product product, List<SpecificPrice> prices) {
+        String description = plainText(product.getDescriptionShort() != null && !product.getDescriptionShort().isBlank()
+                ? product.getDescriptionShort() : product.getDescription(), MAX_DESCRIPTION_LENGTH);
+        String link = siteUrl + "/product/" + product.getLinkRewrite();
+        String imageLink = coverUrl(product);
+        String condition = product.getCondition().name().toLowerCase(Locale.ROOT);
+        // Highest quantity threshold first, like the product page: the first match applies
+        SpecificPrice productPrice = prices.stream()
+                .filter(price -> price.getProductAttribute() == null)
+                .findFirst()
+                .orElse(null);
+
+        List<String> lines = new ArrayList<>();
+        if (product.getAttributes().isEmpty()) {
+            lines.add(line(String.valueOf(product.getId()), "", plainText(product.getName(), MAX_TITLE_LENGTH),
+                    description, link, imageLink, availability(product.getQuantity()), condition,
+                    product.getPrice(), productPrice, product.getEan13(), product.getReference()));
+            return lines;
+        }
+        for (ProductAttribute attribute : product.getAttributes()) {
+            SpecificPrice price = prices.stream()
+                    .filter(candidate -> candidate.getProductAttribute() != null
+                            && attribute.getId().equals(candidate.getProductAttribute().getId()))
+                    .findFirst()
+                    .orElse(productPrice);
+            BigDecimal basePrice = attribute.getPriceImpact() != null
+                    ? product.getPrice().add(attribute.getPriceImpact())
+                    : product.getPrice();
+            lines.add(line(product.getId() + "-" + attribute.getId(), String.valueOf(product.getId()),
+                    plainText(product.getName() + " - " + attribute.getName(), MAX_TITLE_LENGTH),
+                    description, link, imageLink, availability(attribute.getQuantity()), condition,
+                    basePrice, price,
+                    attribute.getEan13() != null ? attribute.getEan13() : product.getEan13(),
+                    attribute.getMpn() != null ? attribute.getMpn() : product.getReference()));
+        }
+        return lines;
+    }
+
+    private String line(String id, String groupId, String title, String description, String link, String imageLink,
+                        String availability, String condition, BigDecimal price, SpecificPrice specificPrice,
+                        String gtin, String mpn) {
+        String salePrice = "";
+        if (specificPrice != null) {
+            BigDecimal discounted = specificPrice.calculateDiscountedPrice(price);
+            if (discounted.compareTo(price) < 0) {
+                salePrice = money(discounted.max(BigDecimal.ZERO));
+            }
+        }
+        return String.join("\t", id, groupId, title, description, link, imageLink, availability, condition,
+                money(price), salePrice, field(gtin), field(mpn));
+    }
+
+    private String coverUrl(Product product) {
+        ProductImage image = product.getImages().stream()
+                .filter(candidate -> Boolean.TRUE.equals(candidate.getCover()))
+                .findFirst()
+                .orElse(product.getImages().isEmpty() ? null : product.getImages().get(0));
+        if (image == null) {
+            return "";
+        }
+        String url = image.getUrl();
+        return field(url.startsWith("http://") || url.startsWith("https://") ? url : assetUrl + url);
+    }
+
+    private String money(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).toPlainString() + " " + currency;
+    }
+
+    private static String availability(Integer quantity) {
+        return quantity != null && quantity > 0 ? "in_stock" : "out_of_stock";
+    }
+
+    /** Text without markup, collapsed to one line (TSV fields cannot hold tabs or line breaks). */
+    private static String plainText(String value, int maxLength) {
+        if (value == null) {
+            return "";
+        }
+        String text = WHITESPACE.matcher(HTML_TAG.matcher(value).replaceAll(" ")).replaceAll(" ").trim();
+        return text.length() > maxLength ? text.substring(0, maxLength) : text;
+    }
+
+    private static String field(String value) {
+        return value == null ? "" : WHITESPACE.matcher(value).replaceAll(" ").trim();
+    }
+
+    private void writeXmlHeader(Writer out) throws IOException {
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        out.write("<rss version=\"2.0\" xmlns:g=\"http://base.google.com/ns/1.0\">\n<channel>\n");
+        out.write("<title>" + xmlEscape(title) + "</title>\n");
+        out.write("<link>" + xmlEscape(siteUrl) + "</link>\n");
+        out.write("<description>" + xmlEscape(title) + " products</description>\n");
+    }
+
+    /** The XML item is rendered from the TSV line, so copied entries need no database access. */
+    private static void writeXmlItem(Writer out, String line) throws IOException {
+        String[] fields = line.split("\t", -1);
+        out.write("<item>");
+        for (int i = 0; i < fields.length && i < COLUMNS.size(); i++) {
+            if (!fields[i].isEmpty()) {
+                out.write("<g:" + COLUMNS.get(i) + ">" + xmlEscape(fields[i]) + "</g:" + COLUMNS.get(i) + ">");
+            }
+        }
+        out.write("</item>\n");
+    }
+
+    private static String xmlEscape(String value) {
+        StringBuilder escaped = new StringBuilder(value.length() + 16);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&' -> escaped.append("&amp;");
+                case '<' -> escaped.append("&lt;");
+                case '>' -> escaped.append("&gt;");
+                case '"' -> escaped.append("&quot;");
+                case '\'' -> escaped.append("&apos;");
+                default -> {
+                    // Control characters other than tab are not allowed in XML 1.0
+                    if (c >= 0x20 || c == '\t') {
+                        escaped.append(c);
+                    }
+                }
+            }
+        }
+        return escaped.toString();
+    }
+
+    // State
+
+    private Generation loadState() throws IOException {
+        Path stateFile = directory.resolve(STATE_FILE);
+        if (!Files.isRegularFile(stateFile)) {
+            return null;
+        }
+        Properties state = new Properties();
+        try (Reader reader = Files.newBufferedReader(stateFile, StandardCharsets.UTF_8)) {
+            state.load(reader);
+        }
+        long number = Long.parseLong(state.getProperty("generation"));
+        Generation generation = new Generation(number,
+                LocalDateTime.parse(state.getProperty("startedAt")),
+                LocalDateTime.parse(state.getProperty("fullBuildAt")),
+                Long.parseLong(state.getProperty("items")),
+                directory.resolve("products-" + number + ".tsv"),
+                directory.resolve("products-" + number + ".xml"));
+        return Files.isRegularFile(generation.tsv()) && Files.isRegularFile(generation.xml()) ? generation : null;
+    }
+
+    private void saveState(Generation generation) throws IOException {
+        Properties state = new Properties();
+        state.setProperty("generation", String.valueOf(generation.number()));
+        state.setProperty("startedAt", generation.startedAt().toString());
+        state.setProperty("fullBuildAt", generation.fullBuildAt().toString());
+        state.setProperty("items", String.valueOf(generation.items()));
+        Path temp = directory.resolve(STATE_FILE + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            state.store(writer, "Product feed state");
+        }
+        Files.move(temp, directory.resolve(STATE_FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /** Deletes generations older than {@code keepFrom}, which may still be downloading. */
+    private void deleteOldGenerations(long keepFrom) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "products-*")) {
+            for (Path file : files) {
+                Matcher matcher = GENERATION_FILE.matcher(file.getFileName().toString());
+                if (matcher.matches() && Long.parseLong(matcher.group(1)) < keepFrom) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Could not delete old feed generations: {}", e.getMessage());
+        }
+    }
+
+    // Sources merged by a build, all ordered by product id
+
+    /** Ids of the products that belong in the feed, read in index-only keyset pages. */
+    private class FeedIds {
+        private final Deque<Long> page = new ArrayDeque<>();
+        private long afterId;
+        private boolean exhausted;
+
+        /** The next id, or 0 at the end. */
+        long next() {
+            if (page.isEmpty() && !exhausted) {
+                List<Long> ids = jdbcTemplate.queryForList(
+                        "SELECT id_product FROM ps_product WHERE id_product > ? AND active = 1 " +
+                        "AND visibility IN ('BOTH', 'CATALOG', 'SEARCH') ORDER BY id_product LIMIT ?",
+                        Long.class, afterId, ID_PAGE_SIZE);
+                page.addAll(ids);
+                exhausted = ids.size() < ID_PAGE_SIZE;
+                if (!ids.isEmpty()) {
+                    afterId = ids.get(ids.size() - 1);
+                }
+            }
+            Long id = page.poll();
+            return id != null ? id : 0;
+        }
+    }
+
+    /** Entries re-rendered for products changed since the last build (all products on a full build). */
+    private class ChangedEntries {
+        private final LocalDateTime since;
+        private final LocalDateTime now;
+        private final Deque<Map.Entry<Long, List<String>>> page = new ArrayDeque<>();
+        private long afterId;
+        private boolean exhausted;
+
+        ChangedEntries(LocalDateTime since, LocalDateTime now) {
+            this.since = since;
+            this.now = now;
+        }
+
+        /** The entry of product {@code id} if it changed, skipping changed products before it. */
+        List<String> take(long id) {
+            while (true) {
+                if (page.isEmpty()) {
+                    if (exhausted) {
+                        return null;
+                    }
+                    loadPage();
+                    continue;
+                }
+                long head = page.peek().getKey();
+                if (head > id) {
+                    return null;
+                }
+                List<String> lines = page.poll().getValue();
+                if (head == id) {
+                    return lines;
+                }
+            }
+        }
+
+        private void loadPage() {
+            Map<Long, List<String>> entries = readOnlyTransaction.execute(status -> {
+                List<Product> products = productRepository.findFeedPage(afterId, since, now, PageRequest.of(0, chunkSize));
+                exhausted = products.size() < chunkSize;
+                if (products.isEmpty()) {
+                    return Map.<Long, List<String>>of();
+                }
+                afterId = products.get(products.size() - 1).getId();
+                List<Long> ids = products.stream().map(Product::getId).toList();
+                productRepository.fetchAttributes(ids);
+                productRepository.fetchImages(ids);
+                return render(products, now);
+            });
+            page.addAll(entries.entrySet());
+        }
+    }
+
+    /** Entries of the previous TSV file, grouped by product id. */
+    private static class PreviousEntries implements AutoCloseable {
+        private final BufferedReader reader;
+        private String pending;
+
+        PreviousEntries(Path tsv) throws IOException {
+            reader = tsv != null ? Files.newBufferedReader(tsv, StandardCharsets.UTF_8) : null;
+            if (reader != null) {
+                reader.readLine();
+                pending = reader.readLine();
+            }
+        }
+
+        /** The lines of product {@code id} if present, skipping products before it. */
+        List<String> take(long id) {
+            try {
+                while (pending != null && lineProductId(pending) < id) {
+                    pending = reader.readLine();
+                }
+                if (pending == null || lineProductId(pending) != id) {
+                    return null;
+                }
+                List<String> lines = new ArrayList<>();
+                while (pending != null && lineProductId(pending) == id) {
+                    lines.add(pending);
+                    pending = reader.readLine();
+                }
+                return lines;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private static long lineProductId(String line) {
+            int end = 0;
+            while (end < line.length() && Character.isDigit(line.charAt(end))) {
+                end++;
+            }
+            return Long.parseLong(line.substring(0, end));
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (reader != null) {
+                reader.close();
+            }
+        }
+    }
+
+    private static final class BuildCounts {
+        long items;
+        long rendered;
+        long copied;
+    }
+}
@@ -0,0 +1,497 @@
+package com.prestashop.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.prestashop.dto.ProductAttributeCreateDto;
+import com.prestashop.dto.ProductImportRow;
+import com.prestashop.entity.Category;
+import com.prestashop.entity.Product;
+import com.prestashop.entity.ProductAttribute;
+import com.prestashop.repository.ProductRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk catalog import from CSV or JSON Lines, run as a {@link MigrationJob.Kind#PRODUCT_IMPORT} job.
+ * <p>
+ * The upload is spooled to a temporary file and read back one record at a time, so memory stays
+ * flat whatever the catalog size. Records are processed in chunks of {@code import.products.chunk-size}:
+ * each chunk is parsed, validated and mapped in parallel, its slugs are resolved with one query
+ * (categories are indexed once per job), and its products, variants and category links are
+ * written as JDBC batches in one short transaction. When a chunk's insert fails, its rows are retried
+ * one by one, so a bad row only fails itself. Row errors are reported on the job.
+ */
+@Service
+@RequiredArgsConstructor
+public class ProductImportService {
+    private Logger LOGGER = LoggerFactory.getLogger(getClass());
+
+    private static final Pattern CATEGORY_SEPARATOR = Pattern.compile("\\|");
+    private static final Pattern HEADER_NOISE = Pattern.compile("[\\s_\\-\\uFEFF]");
+    private static final Map<String, String> CSV_COLUMNS = csvColumns();
+
+    private final ProductRepository productRepository;
+    private final MigrationJobService migrationJobService;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SlugAllocator slugAllocator;
+
+    @Value("${import.products.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${import.products.workers:4}")
+    private int workers;
+
+    @Value("${import.products.max-bytes:1073741824}")
+    private long maxBytes;
+
+    /**
+     * Spools the catalog to a temporary file and starts the import job, which deletes the file when done.
+     *
+     * @throws IllegalStateException if an import is already running
+     */
+    public MigrationJob startImport(InputStream body, CatalogFormat format) throws IOException {
+        Path spool = Files.createTempFile("product-import-", format.getExtension());
+        try {
+            copy(body, spool);
+            return migrationJobService.start(MigrationJob.Kind.PRODUCT_IMPORT, progress -> {
+                try {
+                    return importProducts(spool, format, progress);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    deleteSpool(spool);
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            deleteSpool(spool);
+            throw e;
+        }
+    }
+
+    /**
+     * Imports a spooled catalog and returns the job summary.
+     */
+    String importProducts(Path file, CatalogFormat format, MigrationProgress progress) throws IOException {
+        CategoryIndex categories = loadCategories();
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "product-import-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (RecordSource<?> source = open(file, format)) {
+            Totals totals = run(source, categories, pool, progress);
+            return String.format("Imported %d products with %d variants; %d rows failed",
+                    totals.products, totals.variants, totals.failed);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private <R> Totals run(RecordSource<R> source, CategoryIndex categories, ExecutorService pool,
+                           MigrationProgress progress) throws IOException {
+        Totals totals = new Totals();
+        List<SourceRecord<R>> chunk = new ArrayList<>(chunkSize);
+        long number = 0;
+        R record;
+        while (!progress.isCancelled() && (record = source.next()) != null) {
+            chunk.add(new SourceRecord<>(++number, record));
+            if (chunk.size() == chunkSize) {
+                importChunk(chunk, source, categories, pool, progress, totals);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty() && !progress.isCancelled()) {
+            importChunk(chunk, source, categories, pool, progress, totals);
+        }
+        return totals;
+    }
+
+    private <R> void importChunk(List<SourceRecord<R>> chunk, RecordSource<R> source, CategoryIndex categories,
+                                 ExecutorService pool, MigrationProgress progress, Totals totals) {
+        // Parse, validate and map in parallel, each worker filling its own slice of the array
+        PreparedRow[] prepared = new PreparedRow[chunk.size()];
+        int sliceSize = Math.max(1, (chunk.size() + workers - 1) / workers);
+        List<CompletableFuture<Void>> slices = new ArrayList<>();
+        for (int from = 0; from < chunk.size(); from += sliceSize) {
+            int start = from;
+            int end = Math.min(from + sliceSize, chunk.size());
+            slices.add(CompletableFuture.runAsync(() -> {
+                for (int i = start; i < end; i++) {
+                    prepared[i] = prepare(chunk.get(i), source, categories);
+                }
+            }, pool));
+        }
+        CompletableFuture.allOf(slices.toArray(CompletableFuture[]::new)).join();
+
+        List<PreparedRow> valid = new ArrayList<>(prepared.length);
+        for (PreparedRow row : prepared) {
+            if (row.error() != null) {
+                progress.failed("Row " + row.number() + ": " + row.error());
+                totals.failed++;
+            } else {
+                valid.add(row);
+            }
+        }
+        if (!valid.isEmpty()) {
+            assignSlugs(valid.stream().map(PreparedRow::product).toList());
+            insert(valid, progress, totals);
+        }
+        LOGGER.debug("Product import: {} products imported, {} rows failed so far", totals.products, totals.failed);
+    }
+
+    private <R> PreparedRow prepare(SourceRecord<R> record, RecordSource<R> source, CategoryIndex categories) {
+        try {
+            ProductImportRow row = source.parse(record.value());
+            Set<ConstraintViolation<ProductImportRow>> violations = validator.validate(row);
+            if (!violations.isEmpty()) {
+                String error = violations.stream()
+                        .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining("; "));
+                return new PreparedRow(record.number(), null, null, error);
+            }
+            Product product = toProduct(row, categories);
+            return new PreparedRow(record.number(), product, product.getLinkRewrite(), null);
+        } catch (JsonProcessingException e) {
+            return new PreparedRow(record.number(), null, null, e.getOriginalMessage());
+        } catch (Exception e) {
+            return new PreparedRow(record.number(), null, null, e.getMessage());
+        }
+    }
+
+    private Product toProduct(ProductImportRow row, CategoryIndex categories) {
+        String linkRewrite = SlugAllocator.baseSlug(row.getLinkRewrite(), row.getName());
+        Product product = Product.builder()
+                .name(row.getName())
+                .description(row.getDescription())
+                .descriptionShort(row.getDescriptionShort())
+                .linkRewrite(linkRewrite.isEmpty() ? "product" : linkRewrite)
+                .price(row.getPrice())
+                .wholesalePrice(row.getWholesalePrice())
+                .quantity(row.getQuantity() != null ? row.getQuantity() : 0)
+                .minimalQuantity(row.getMinimalQuantity() != null ? row.getMinimalQuantity() : 1)
+                .reference(row.getReference())
+                .ean13(row.getEan13())
+                .isbn(row.getIsbn())
+                .upc(row.getUpc())
+                .weight(row.getWeight())
+                .width(row.getWidth())
+                .height(row.getHeight())
+                .depth(row.getDepth())
+                .active(row.getActive() != null ? row.getActive() : true)
+                .visibility(enumValue(Product.Visibility.class, row.getVisibility(), Product.Visibility.BOTH))
+                .condition(enumValue(Product.ProductCondition.class, row.getCondition(), Product.ProductCondition.NEW))
+                .productType(enumValue(Product.ProductType.class, row.getProductType(), Product.ProductType.STANDARD))
+                .onSale(row.getOnSale() != null ? row.getOnSale() : false)
+                .onlineOnly(row.getOnlineOnly() != null ? row.getOnlineOnly() : false)
+                .metaTitle(row.getMetaTitle())
+                .metaDescription(row.getMetaDescription())
+                .build();
+
+        if (row.getDefaultCategory() != null && !row.getDefaultCategory().isBlank()) {
+            product.setDefaultCategory(categories.resolve(row.getDefaultCategory()));
+        }
+        if (row.getCategories() != null) {
+            Set<Long> linked = new HashSet<>();
+            for (String reference : row.getCategories()) {
+                Category category = categories.resolve(reference);
+                if (linked.add(category.getId())) {
+                    product.getCategories().add(category);
+                }
+            }
+        }
+        if (row.getVariants() != null) {
+            for (ProductAttributeCreateDto variant : row.getVariants()) {
+                product.getAttributes().add(ProductAttribute.builder()
+                        .product(product)
+                        .name(variant.getName())
+                        .reference(variant.getReference())
+                        .ean13(variant.getEan13())
+                        .isbn(variant.getIsbn())
+                        .upc(variant.getUpc())
+                        .priceImpact(variant.getPriceImpact() != null ? variant.getPriceImpact() : BigDecimal.ZERO)
+                        .weightImpact(variant.getWeightImpact() != null ? variant.getWeightImpact() : BigDecimal.ZERO)
+                        .quantity(variant.getQuantity() != null ? variant.getQuantity() : 0)
+                        .minimalQuantity(variant.getMinimalQuantity() != null ? variant.getMinimalQuantity() : 1)
+                        .defaultOn(variant.getDefaultOn() != null ? variant.getDefaultOn() : false)
+                        .build());
+            }
+        }
+        return product;
+    }
+
+    /**
+     * Makes every slug of the chunk unique, against the catalog and within the chunk, the same way
+     * createProduct does ({@code slug}, {@code slug-1}, {@code slug-2}, ...), with one query.
+     */
+    private void assignSlugs(List<Product> products) {
+        List<String> slugs = slugAllocator.allocateAll(SlugAllocator.Scope.PRODUCT,
+                products.stream().map(Product::getLinkRewrite).toList());
+        for (int i = 0; i < products.size(); i++) {
+            products.get(i).setLinkRewrite(slugs.get(i));
+        }
+    }
+
+    private void insert(List<PreparedRow> rows, MigrationProgress progress, Totals totals) {
+        List<Product> products = rows.stream().map(PreparedRow::product).toList();
+        try {
+            transactionTemplate.executeWithoutResult(status -> productRepository.insertAll(products));
+            products.forEach(product -> imported(product, progress, totals));
+        } catch (DataAccessException e) {
+            LOGGER.warn("Batch insert of rows {}-{} failed, retrying them one by one: {}",
+                    rows.get(0).number(), rows.get(rows.size() - 1).number(), e.getMostSpecificCause().getMessage());
+            for (PreparedRow row : rows) {
+                try {
+                    // The chunk may have failed on a slug taken concurrently; insert allocates again and retries then
+                    slugAllocator.insert(SlugAllocator.Scope.PRODUCT, row.baseSlug(), slug -> {
+                        row.product().setLinkRewrite(slug);
+                        productRepository.insertAll(List.of(row.product()));
+                        return null;
+                    });
+                    imported(row.product(), progress, totals);
+                } catch (DataAccessException rowError) {
+                    progress.failed("Row " + row.number() + ": " + rowError.getMostSpecificCause().getMessage());
+                    totals.failed++;
+                }
+            }
+        }
+    }
+
+    private void imported(Product product, MigrationProgress progress, Totals totals) {
+        progress.success();
+        totals.products++;
+        totals.variants += product.getAttributes().size();
+    }
+
+    private CategoryIndex loadCategories() {
+        Map<String, Long> idsBySlug = new HashMap<>();
+        Set<Long> ids = new HashSet<>();
+        jdbcTemplate.query("SELECT id_category, link_rewrite FROM ps_category", (RowCallbackHandler) rs -> {
+            ids.add(rs.getLong(1));
+            idsBySlug.put(rs.getString(2), rs.getLong(1));
+        });
+        return new CategoryIndex(idsBySlug, ids);
+    }
+
+    private RecordSource<?> open(Path file, CatalogFormat format) throws IOException {
+        BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        try {
+            return format == CatalogFormat.CSV ? csv(reader) : jsonLines(reader);
+        } catch (IOException | RuntimeException e) {
+            reader.close();
+            throw e;
+        }
+    }
+
+    private RecordSource<String> jsonLines(BufferedReader reader) {
+        return new RecordSource<>() {
+            @Override
+            public String next() throws IOException {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isBlank()) {
+                        return line.startsWith("\uFEFF") ? line.substring(1) : line;
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public ProductImportRow parse(String line) throws IOException {
+                return objectMapper.readValue(line, ProductImportRow.class);
+            }
+
+            @Override
+            public void close() throws IOException {
+                reader.close();
+            }
+        };
+    }
+
+    private RecordSource<List<String>> csv(BufferedReader reader) throws IOException {
+        CsvReader csv = new CsvReader(reader);
+        List<String> header = csv.next();
+        if (header == null) {
+            throw new IllegalArgumentException("The CSV file is empty");
+        }
+        String[] properties = new String[header.size()];
+        for (int i = 0; i < header.size(); i++) {
+            properties[i] = CSV_COLUMNS.get(HEADER_NOISE.matcher(header.get(i)).replaceAll("").toLowerCase(Locale.ROOT));
+            if (properties[i] == null) {
+                LOGGER.warn("Ignoring unknown CSV column '{}'", header.get(i));
+            }
+        }
+        if (!Arrays.asList(properties).contains("name")) {
+            throw new IllegalArgumentException("The CSV header has no name column");
+        }
+
+        return new RecordSource<>() {
+            @Override
+            public List<String> next() throws IOException {
+                List<String> fields;
+                while ((fields = csv.next()) != null) {
+                    if (fields.size() > 1 || !fields.get(0).isBlank()) {
+                        return fields;
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public ProductImportRow parse(List<String> fields) throws IOException {
+                if (fields.size() > properties.length) {
+                    throw new IllegalArgumentException("Expected at most " + properties.length
+                            + " fields, found " + fields.size());
+                }
+                Map<String, Object> values = new HashMap<>();
+                for (int i = 0; i < fields.size(); i++) {
+                    String value = fields.get(i).trim();
+                    if (properties[i] == null || value.isEmpty()) {
+                        continue;
+                    }
+                    values.put(properties[i], switch (properties[i]) {
+                        case "categories" -> CATEGORY_SEPARATOR.splitAsStream(value)
+                                .map(String::trim)
+                                .filter(s -> !s.isEmpty())
+                                .toList();
+                        case "variants" -> objectMapper.readTree(value);
+                        default -> value;
+                    });
+                }
+                return objectMapper.convertValue(values, ProductImportRow.class);
+            }
+
+            @Override
+            public void close() throws IOException {
+                csv.close();
+            }
+        };
+    }
+
+    private void copy(InputStream body, Path spool) throws IOException {
+        try (OutputStream out = Files.newOutputStream(spool)) {
+            byte[] buffer = new byte[64 * 1024];
+            long total = 0;
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                total += read;
+                if (total > maxBytes) {
+                    throw new IllegalArgumentException("Import file exceeds " + maxBytes + " bytes");
+                }
+                out.write(buffer, 0, read);
+            }
+        }
+    }
+
+    private void deleteSpool(Path spool) {
+        try {
+            Files.deleteIfExists(spool);
+        } catch (IOException e) {
+            LOGGER.warn("Could not delete import spool file {}: {}", spool, e.getMessage());
+        }
+    }
+
+    private static <E extends Enum<E>> E enumValue(Class<E> type, String value, E defaultValue) {
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown " + type.getSimpleName() + ": " + value);
+        }
+    }
+
+    /** CSV header names (case, spaces, dashes and underscores ignored) to row properties. */
+    private static Map<String, String> csvColumns() {
+        Map<String, String> columns = new HashMap<>();
+        for (Field field : ProductImportRow.class.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers())) {
+                columns.put(field.getName().toLowerCase(Locale.ROOT), field.getName());
+            }
+        }
+        return Map.copyOf(columns);
+    }
+
+    /** Reads raw records in order on the job thread; {@link #parse} runs on the workers. */
+    private interface RecordSource<R> extends Closeable {
+
+        /** The next non-blank record, or null at the end of the input. */
+        R next() throws IOException;
+
+        ProductImportRow parse(R record) throws IOException;
+    }
+
+    private record SourceRecord<R>(long number, R value) {}
+
+    /**
+     * A mapped product with {@code baseSlug}, the slug asked for before assignSlugs made it unique;
+     * or, with both null, the reason its row was rejected.
+     */
+    private record PreparedRow(long number, Product product, String baseSlug, String error) {}
+
+    private record CategoryIndex(Map<String, Long> idsBySlug, Set<Long> ids) {
+
+        /**
+         * @throws IllegalArgumentException for an unknown category
+         */
+        Category resolve(String reference) {
+            String value = reference.trim();
+            Long id = idsBySlug.get(value);
+            if (id == null && !value.isEmpty() && value.chars().allMatch(Character::isDigit)) {
+                Long candidate = Long.valueOf(value);
+                id = ids.contains(candidate) ? candidate : null;
+            }
+            if (id == null) {
+                throw new IllegalArgumentException("Unknown category: " + reference);
+            }
+            return Category.builder().id(id).build();
+        }
+    }
+
+    private static final class Totals {
+        long products;
+        long variants;
+        long failed;
+    }
+}
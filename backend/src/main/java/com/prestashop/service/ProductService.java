@@ -27,6 +27,11 @@ public class ProductService {
     private final ProductImageRepository imageRepository;
     private final ProductAttributeRepository attributeRepository;
     private final SpecificPriceRepository specificPriceRepository;
+    private final ImageObjectService imageObjectService;
+    private final StorageDeletionService storageDeletionService;
+    private final SlugAllocator slugAllocator;
+
+    private static final int BULK_CHUNK_SIZE = 1000;
 
     // Public methods for PLP/PDP
 
@@ -93,6 +98,9 @@ public class ProductService {
         if (cover != null) {
             String coverUrl = cover.getUrl();
             dto.setCoverImage(coverUrl);
+            dto.setCoverWidth(cover.getWidth());
+            dto.setCoverHeight(cover.getHeight());
+            dto.setCoverPlaceholder(cover.getPlaceholder());
             LOGGER.debug("Product {} - Cover image: id={}, s3Key={}, s3Url={}, resolvedUrl={}",
                     product.getId(), cover.getId(), cover.getS3Key(), cover.getS3Url(), coverUrl);
         } else {
@@ -137,25 +145,14 @@ public class ProductService {
                 .map(ProductDto::fromEntity);
     }
 
-    @Transactional
     public ProductDto createProduct(ProductCreateDto createDto) {
-        Product product = new Product();
-        mapCreateDtoToEntity(createDto, product);
-
-        // Generate link_rewrite if not provided
-        if (product.getLinkRewrite() == null || product.getLinkRewrite().isBlank()) {
-            product.setLinkRewrite(generateLinkRewrite(product.getName()));
-        }
-
-        // Ensure unique link_rewrite
-        String baseSlug = product.getLinkRewrite();
-        int counter = 1;
-        while (productRepository.existsByLinkRewrite(product.getLinkRewrite())) {
-            product.setLinkRewrite(baseSlug + "-" + counter++);
-        }
-
-        product = productRepository.save(product);
-        return ProductDto.fromEntity(product);
+        String baseSlug = SlugAllocator.baseSlug(createDto.getLinkRewrite(), createDto.getName());
+        return slugAllocator.insert(SlugAllocator.Scope.PRODUCT, baseSlug, slug -> {
+            Product product = new Product();
+            mapCreateDtoToEntity(createDto, product);
+            product.setLinkRewrite(slug);
+            return ProductDto.fromEntity(productRepository.saveAndFlush(product));
+        });
     }
 
     @Transactional
@@ -177,22 +174,45 @@ public class ProductService {
         if (!productRepository.existsById(id)) {
             throw new ResourceNotFoundException("Product not found: " + id);
         }
-        productRepository.deleteById(id);
+        releaseStoredImages(List.of(id));
+        productRepository.deleteAllByIdIn(List.of(id));
     }
 
     @Transactional
-    public void bulkUpdateStatus(List<Long> ids, boolean active) {
-        ids.forEach(id -> {
-            productRepository.findById(id).ifPresent(product -> {
-                product.setActive(active);
-                productRepository.save(product);
-            });
-        });
+    public int bulkUpdateStatus(List<Long> ids, boolean active) {
+        List<Long> distinctIds = ids.stream().distinct().toList();
+        LocalDateTime now = LocalDateTime.now();
+        int updated = 0;
+        // One UPDATE ... WHERE id_product IN (...) per chunk, keeping each statement's parameter list bounded
+        for (int from = 0; from < distinctIds.size(); from += BULK_CHUNK_SIZE) {
+            List<Long> chunk = distinctIds.subList(from, Math.min(from + BULK_CHUNK_SIZE, distinctIds.size()));
+            updated += productRepository.updateActiveByIdIn(chunk, active, now);
+        }
+        LOGGER.info("Set active={} on {} of {} requested products", active, updated, distinctIds.size());
+        return updated;
     }
 
     @Transactional
-    public void bulkDelete(List<Long> ids) {
-        productRepository.deleteAllById(ids);
+    public int bulkDelete(List<Long> ids) {
+        List<Long> distinctIds = ids.stream().distinct().toList();
+        int deleted = 0;
+        // Each chunk deletes its child rows and products with one DELETE ... WHERE id_product IN (...) per table
+        for (int from = 0; from < distinctIds.size(); from += BULK_CHUNK_SIZE) {
+            List<Long> chunk = distinctIds.subList(from, Math.min(from + BULK_CHUNK_SIZE, distinctIds.size()));
+            releaseStoredImages(chunk);
+            deleted += productRepository.deleteAllByIdIn(chunk);
+        }
+        LOGGER.info("Deleted {} of {} requested products", deleted, distinctIds.size());
+        return deleted;
+    }
+
+    /**
+     * Drops the products' references to their stored images and queues the objects nothing else
+     * uses for deletion from storage once the product delete commits.
+     */
+    private void releaseStoredImages(List<Long> productIds) {
+        List<String> unreferenced = imageObjectService.releaseAll(imageRepository.findS3KeysByProductIdIn(productIds));
+        storageDeletionService.enqueueImages(unreferenced);
     }
 
     // Variant management
@@ -223,6 +243,7 @@ public class ProductService {
         attr.setDefaultOn(createDto.getDefaultOn());
 
         attr = attributeRepository.save(attr);
+        productRepository.touch(productId, LocalDateTime.now());
         return ProductAttributeDto.fromEntity(attr);
     }
 
@@ -236,6 +257,7 @@ public class ProductService {
         }
 
         attributeRepository.delete(attr);
+        productRepository.touch(productId, LocalDateTime.now());
     }
 
     // Helper methods
@@ -322,12 +344,4 @@ public class ProductService {
             product.setCategories(new HashSet<>(categoryRepository.findAllById(dto.getCategoryIds())));
         }
     }
-
-    private String generateLinkRewrite(String name) {
-        return name.toLowerCase()
-                .replaceAll("[^a-z0-9\\s-]", "")
-                .replaceAll("\\s+", "-")
-                .replaceAll("-+", "-")
-                .replaceAll("^-|-$", "");
-    }
 }
@@ -0,0 +1,232 @@
+package com.prestashop.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Streams uploads to S3 without materializing them on the heap.
+ * Objects up to the threshold go up in a single PUT streamed from the file or input stream;
+ * larger ones use a multipart upload whose parts are sent in parallel. S3 verifies a SHA-256
+ * checksum the SDK computes while each request body streams out.
+ */
+@Component
+@ConditionalOnProperty(name = "storage.type", havingValue = "s3", matchIfMissing = true)
+@RequiredArgsConstructor
+public class S3MultipartUploader {
+    private Logger LOGGER = LoggerFactory.getLogger(getClass());
+
+    /** S3 minimum part size (except for the last part) and maximum part count. */
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+    private static final int MAX_PARTS = 10_000;
+
+    private final S3Client s3Client;
+
+    @Value("${aws.s3.bucket-name}")
+    private String bucketName;
+
+    @Value("${aws.s3.multipart.threshold-bytes:16777216}")
+    private long thresholdBytes;
+
+    @Value("${aws.s3.multipart.part-size-bytes:8388608}")
+    private long partSizeBytes;
+
+    @Value("${aws.s3.multipart.parallelism:4}")
+    private int parallelism;
+
+    private ExecutorService partExecutor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        partExecutor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "s3-part-upload-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        partExecutor.shutdownNow();
+    }
+
+    /**
+     * Uploads a local file. Parts are read straight from the file by position, so nothing is buffered.
+     */
+    public void upload(String s3Key, Path source, String contentType, String cacheControl) throws IOException {
+        long size = Files.size(source);
+        if (size <= thresholdBytes) {
+            putObject(s3Key, contentType, cacheControl, RequestBody.fromFile(source));
+            return;
+        }
+        multipart(s3Key, contentType, cacheControl, size,
+                (offset, length) -> RequestBody.fromContentProvider(() -> {
+                    try {
+                        return new FileRangeInputStream(source, offset, length);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, length, contentType));
+    }
+
+    /**
+     * Uploads a stream of known length. Multipart parts are read sequentially from the stream;
+     * at most {@code parallelism} parts are buffered at any time, independent of the object size.
+     */
+    public void upload(String s3Key, InputStream source, long size, String contentType, String cacheControl) throws IOException {
+        if (size <= thresholdBytes) {
+            putObject(s3Key, contentType, cacheControl, RequestBody.fromInputStream(source, size));
+            return;
+        }
+        multipart(s3Key, contentType, cacheControl, size, (offset, length) -> {
+            byte[] part = source.readNBytes((int) length);
+            if (part.length != length) {
+                throw new EOFException("Stream ended at " + (offset + part.length) + " of " + size + " bytes");
+            }
+            return RequestBody.fromBytes(part);
+        });
+    }
+
+    private void putObject(String s3Key, String contentType, String cacheControl, RequestBody body) throws IOException {
+        try {
+            s3Client.putObject(PutObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(s3Key)
+                    .contentType(contentType)
+                    .cacheControl(cacheControl)
+                    .checksumAlgorithm(ChecksumAlgorithm.SHA256)
+                    .build(), body);
+        } catch (SdkException e) {
+            throw new IOException("Failed to upload to S3: " + e.getMessage(), e);
+        }
+    }
+
+    private void multipart(String s3Key, String contentType, String cacheControl, long size, PartBodies parts) throws IOException {
+        long partSize = Math.max(Math.max(partSizeBytes, MIN_PART_SIZE), (size + MAX_PARTS - 1) / MAX_PARTS);
+        int partCount = (int) ((size + partSize - 1) / partSize);
+
+        String uploadId;
+        try {
+            uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(s3Key)
+                    .contentType(contentType)
+                    .cacheControl(cacheControl)
+                    .checksumAlgorithm(ChecksumAlgorithm.SHA256)
+                    .build()).uploadId();
+        } catch (SdkException e) {
+            throw new IOException("Failed to start multipart upload: " + e.getMessage(), e);
+        }
+        LOGGER.debug("Multipart upload {} started for {} ({} bytes, {} parts)", uploadId, s3Key, size, partCount);
+
+        Semaphore inFlight = new Semaphore(parallelism);
+        List<CompletableFuture<CompletedPart>> futures = new ArrayList<>(partCount);
+        try {
+            for (int i = 0; i < partCount; i++) {
+                if (futures.stream().anyMatch(CompletableFuture::isCompletedExceptionally)) {
+                    break;
+                }
+                int partNumber = i + 1;
+                long offset = i * partSize;
+                long length = Math.min(partSize, size - offset);
+
+                inFlight.acquire();
+                RequestBody body;
+                try {
+                    body = parts.body(offset, length);
+                } catch (IOException | RuntimeException e) {
+                    inFlight.release();
+                    throw e;
+                }
+                futures.add(CompletableFuture
+                        .supplyAsync(() -> uploadPart(s3Key, uploadId, partNumber, body), partExecutor)
+                        .whenComplete((part, error) -> inFlight.release()));
+            }
+
+            List<CompletedPart> completed = new ArrayList<>(partCount);
+            for (CompletableFuture<CompletedPart> future : futures) {
+                completed.add(future.join());
+            }
+            s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(s3Key)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(completed).build())
+                    .build());
+            LOGGER.info("Multipart upload completed: {} ({} bytes, {} parts)", s3Key, size, partCount);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort(s3Key, uploadId);
+            throw new IOException("Interrupted during multipart upload of " + s3Key, e);
+        } catch (CompletionException | SdkException | IOException e) {
+            abort(s3Key, uploadId);
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            throw new IOException("Multipart upload failed for " + s3Key + ": " + cause.getMessage(), cause);
+        }
+    }
+
+    private CompletedPart uploadPart(String s3Key, String uploadId, int partNumber, RequestBody body) {
+        UploadPartResponse response = s3Client.uploadPart(UploadPartRequest.builder()
+                .bucket(bucketName)
+                .key(s3Key)
+                .uploadId(uploadId)
+                .partNumber(partNumber)
+                .checksumAlgorithm(ChecksumAlgorithm.SHA256)
+                .build(), body);
+        return CompletedPart.builder()
+                .partNumber(partNumber)
+                .eTag(response.eTag())
+                .checksumSHA256(response.checksumSHA256())
+                .build();
+    }
+
+    private void abort(String s3Key, String uploadId) {
+        try {
+            s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(s3Key)
+                    .uploadId(uploadId)
+                    .build());
+        } catch (SdkException e) {
+            LOGGER.warn("Failed to abort multipart upload {} for {}: {}", uploadId, s3Key, e.getMessage());
+        }
+    }
+
+    @FunctionalInterface
+    private interface PartBodies {
+        RequestBody body(long offset, long length) throws IOException;
+    }
+}
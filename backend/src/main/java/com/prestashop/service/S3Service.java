@@ -6,33 +6,65 @@ import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.Delete;
 import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.MetadataDirective;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Error;
 import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
+/**
+ * S3 implementation of {@link ObjectStorage} ({@code storage.type=s3}, the default), plus the
+ * S3-only operations: presigned direct uploads and their promotion.
+ */
 @Service
+@ConditionalOnProperty(name = "storage.type", havingValue = "s3", matchIfMissing = true)
 @RequiredArgsConstructor
-public class S3Service {
+public class S3Service implements ObjectStorage {
     private Logger LOGGER = LoggerFactory.getLogger(getClass());
 
+    private static final String UPLOADS_PREFIX = "uploads/products/";
+
     private final S3Client s3Client;
+    private final S3Presigner s3Presigner;
+    private final S3MultipartUploader multipartUploader;
+    private final HedgedReader hedgedReader;
 
     @Value("${aws.s3.bucket-name}")
     private String bucketName;
 
+    @Value("${aws.s3.presign-ttl-seconds:600}")
+    private long presignTtlSeconds;
+
     @Value("${aws.region}")
     private String region;
 
@@ -46,75 +78,129 @@ public class S3Service {
     }
 
     /**
-     * Uploads a file to S3 and returns the S3 key
+     * Streams a local file to S3 under the given key, switching to a parallel multipart upload
+     * for large files. The file is never read into memory as a whole.
+     * Fingerprinted keys are stored with an immutable Cache-Control header.
+     */
+    @Override
+    public void putFile(String s3Key, Path sourcePath, String contentType) throws IOException {
+        multipartUploader.upload(s3Key, sourcePath, contentType,
+                ImageFingerprint.isFingerprinted(s3Key) ? ImageFingerprint.IMMUTABLE_CACHE_CONTROL : null);
+    }
+
+    /**
+     * Streams content of known length to S3 under the given key (multipart above the threshold).
+     * Fingerprinted keys are stored with an immutable Cache-Control header.
      */
-    public String uploadFile(MultipartFile file, Long productId) throws IOException {
-        LOGGER.debug("Starting S3 upload for product {} - file: {}, size: {} bytes, contentType: {}",
-                productId, file.getOriginalFilename(), file.getSize(), file.getContentType());
+    @Override
+    public void putStream(String s3Key, InputStream content, long size, String contentType) throws IOException {
+        multipartUploader.upload(s3Key, content, size, contentType,
+                ImageFingerprint.isFingerprinted(s3Key) ? ImageFingerprint.IMMUTABLE_CACHE_CONTROL : null);
+    }
+
+    /**
+     * Staging prefix for direct (presigned) uploads of a product's images.
+     */
+    public static String stagingPrefix(Long productId) {
+        return UPLOADS_PREFIX + productId + "/";
+    }
 
-        String originalFilename = file.getOriginalFilename();
+    /**
+     * Issues a presigned PUT URL for a product-scoped staging key, so the client uploads straight to S3.
+     * Content type and length are part of the signature, so the client must send exactly those headers.
+     */
+    public PresignedUpload presignUpload(Long productId, String originalFilename, String contentType, long size) {
         String extension = originalFilename != null && originalFilename.contains(".")
-                ? originalFilename.substring(originalFilename.lastIndexOf("."))
+                ? originalFilename.substring(originalFilename.lastIndexOf(".")).toLowerCase()
                 : ".jpg";
+        String stagingKey = stagingPrefix(productId) + UUID.randomUUID() + extension;
 
-        String filename = UUID.randomUUID().toString() + extension;
-        String s3Key = "products/" + productId + "/" + filename;
+        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(stagingKey)
+                .contentType(contentType)
+                .contentLength(size)
+                .build();
+        PresignedPutObjectRequest presigned = s3Presigner.presignPutObject(PutObjectPresignRequest.builder()
+                .signatureDuration(Duration.ofSeconds(presignTtlSeconds))
+                .putObjectRequest(putObjectRequest)
+                .build());
 
-        LOGGER.debug("Generated S3 key: {}", s3Key);
+        // The browser sets Host itself; every other signed header must be echoed by the client
+        Map<String, String> headers = new LinkedHashMap<>();
+        presigned.signedHeaders().forEach((name, values) -> {
+            if (!"host".equalsIgnoreCase(name)) {
+                headers.put(name, String.join(",", values));
+            }
+        });
+        LOGGER.debug("Presigned upload for product {}: {} (expires {})", productId, stagingKey, presigned.expiration());
+        return new PresignedUpload(stagingKey, presigned.url().toString(), headers, presigned.expiration());
+    }
 
+    /**
+     * Moves a verified staged upload to its final fingerprinted key with a server-side copy
+     * (no bytes pass through the application) and removes the staging object.
+     *
+     * @return the final S3 key
+     */
+    public String promoteUpload(String stagingKey, Long productId, String fingerprint, String contentType) throws IOException {
+        String extension = stagingKey.contains(".") ? stagingKey.substring(stagingKey.lastIndexOf(".")) : ".jpg";
+        String s3Key = "products/" + productId + "/" + ImageFingerprint.filename(fingerprint, extension);
         try {
-            PutObjectRequest putObjectRequest = PutObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(s3Key)
-                    .contentType(file.getContentType())
-                    .build();
-
-            LOGGER.debug("Uploading to S3 bucket: {}", bucketName);
-            s3Client.putObject(putObjectRequest, RequestBody.fromInputStream(file.getInputStream(), file.getSize()));
-
-            String publicUrl = getPublicUrl(s3Key);
-            LOGGER.info("Successfully uploaded file to S3: {} -> {}", originalFilename, publicUrl);
-            return s3Key;
+            s3Client.copyObject(CopyObjectRequest.builder()
+                    .sourceBucket(bucketName)
+                    .sourceKey(stagingKey)
+                    .destinationBucket(bucketName)
+                    .destinationKey(s3Key)
+                    .metadataDirective(MetadataDirective.REPLACE)
+                    .contentType(contentType)
+                    .cacheControl(ImageFingerprint.IMMUTABLE_CACHE_CONTROL)
+                    .build());
         } catch (S3Exception e) {
-            LOGGER.error("S3 upload failed for product {} - file: {}, error: {}",
-                    productId, originalFilename, e.awsErrorDetails().errorMessage(), e);
-            throw new IOException("Failed to upload to S3: " + e.awsErrorDetails().errorMessage(), e);
-        } catch (Exception e) {
-            LOGGER.error("Unexpected error during S3 upload for product {} - file: {}",
-                    productId, originalFilename, e);
-            throw new IOException("Failed to upload to S3: " + e.getMessage(), e);
+            LOGGER.error("S3 copy failed: {} -> {}, error: {}", stagingKey, s3Key, e.awsErrorDetails().errorMessage(), e);
+            throw new IOException("Failed to store upload: " + e.awsErrorDetails().errorMessage(), e);
         }
+        deleteStagedUpload(stagingKey);
+        LOGGER.info("Promoted direct upload {} -> {}", stagingKey, s3Key);
+        return s3Key;
     }
 
     /**
-     * Uploads a file from the local filesystem to S3 (e.g. during legacy migration).
-     * Used when migrating images directly to S3 instead of copying to upload folder.
-     *
-     * @param sourcePath path to the source file
-     * @param productId product id for the key prefix
-     * @param contentType MIME type (e.g. image/jpeg)
-     * @return the S3 key (use getPublicUrl(key) for the URL)
+     * Removes a staging object; failures are only logged (a bucket lifecycle rule on uploads/ is the backstop).
      */
-    public String uploadFromPath(Path sourcePath, Long productId, String contentType) throws IOException {
-        String filename = sourcePath.getFileName().toString();
-        String extension = filename.contains(".") ? filename.substring(filename.lastIndexOf(".")) : ".jpg";
-        String s3Filename = UUID.randomUUID().toString() + extension;
-        String s3Key = "products/" + productId + "/" + s3Filename;
+    public void deleteStagedUpload(String stagingKey) {
+        try {
+            deleteFile(stagingKey);
+        } catch (S3Exception e) {
+            LOGGER.warn("Could not delete staged upload {}: {}", stagingKey, e.getMessage());
+        }
+    }
 
-        byte[] bytes = Files.readAllBytes(sourcePath);
-        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
-                .bucket(bucketName)
-                .key(s3Key)
-                .contentType(contentType != null ? contentType : "image/jpeg")
-                .build();
-        s3Client.putObject(putObjectRequest, RequestBody.fromBytes(bytes));
-        LOGGER.info("Uploaded from path to S3: {} -> {} ({} bytes)", sourcePath.getFileName(), s3Key, bytes.length);
-        return s3Key;
+    /**
+     * Uploads in-memory content to S3 under the given key (e.g. generated image variants).
+     * Fingerprinted keys are stored with an immutable Cache-Control header.
+     */
+    @Override
+    public void putBytes(String s3Key, byte[] content, String contentType) throws IOException {
+        try {
+            PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(s3Key)
+                    .contentType(contentType)
+                    .cacheControl(ImageFingerprint.isFingerprinted(s3Key) ? ImageFingerprint.IMMUTABLE_CACHE_CONTROL : null)
+                    .build();
+            s3Client.putObject(putObjectRequest, RequestBody.fromBytes(content));
+            LOGGER.debug("Uploaded {} bytes to S3: {}", content.length, s3Key);
+        } catch (S3Exception e) {
+            LOGGER.error("S3 upload failed for key: {}, error: {}", s3Key, e.awsErrorDetails().errorMessage(), e);
+            throw new IOException("Failed to upload to S3: " + e.awsErrorDetails().errorMessage(), e);
+        }
     }
 
     /**
      * Deletes a file from S3
      */
+    @Override
     public void deleteFile(String s3Key) {
         LOGGER.debug("Deleting from S3 - bucket: {}, key: {}", bucketName, s3Key);
 
@@ -132,35 +218,145 @@ public class S3Service {
         }
     }
 
+    /**
+     * Deletes up to {@link #MAX_DELETE_BATCH} objects with one DeleteObjects request.
+     * Returns the keys S3 could not delete, with its error for each; keys that do not exist count as deleted.
+     */
+    @Override
+    public Map<String, String> deleteFiles(Collection<String> s3Keys) {
+        if (s3Keys.isEmpty()) {
+            return Map.of();
+        }
+        if (s3Keys.size() > MAX_DELETE_BATCH) {
+            throw new IllegalArgumentException("At most " + MAX_DELETE_BATCH + " keys can be deleted at once");
+        }
+
+        List<ObjectIdentifier> objects = s3Keys.stream()
+                .map(key -> ObjectIdentifier.builder().key(key).build())
+                .toList();
+        DeleteObjectsRequest request = DeleteObjectsRequest.builder()
+                .bucket(bucketName)
+                .delete(Delete.builder().objects(objects).quiet(true).build())
+                .build();
+
+        // Quiet mode: the response lists only the keys that failed
+        DeleteObjectsResponse response = s3Client.deleteObjects(request);
+        Map<String, String> failed = new LinkedHashMap<>();
+        for (S3Error error : response.errors()) {
+            failed.put(error.key(), error.code() + ": " + error.message());
+        }
+        LOGGER.info("Deleted {} files from S3 in one batch ({} failed)", s3Keys.size() - failed.size(), failed.size());
+        return failed;
+    }
+
     /**
      * Gets object content from S3 as an input stream.
      * Caller is responsible for closing the stream.
      *
      * @param s3Key the S3 object key (e.g. products/1/uuid.jpg)
      * @return input stream of the object content
-     * @throws IOException if the object does not exist or cannot be read
+     * @throws FileNotFoundException if the object does not exist
+     * @throws IOException if the object cannot be read
      */
+    @Override
     public InputStream getObjectContent(String s3Key) throws IOException {
+        return getObject(GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(s3Key)
+                .build());
+    }
+
+    /**
+     * Gets a byte range of an object (both offsets inclusive), so partial requests
+     * only transfer the requested bytes from S3. Caller is responsible for closing the stream.
+     */
+    @Override
+    public InputStream getObjectRange(String s3Key, long start, long endInclusive) throws IOException {
+        return getObject(GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(s3Key)
+                .range("bytes=" + start + "-" + endInclusive)
+                .build());
+    }
+
+    /**
+     * Gets object content and headers with a single GET: the response carries the ETag, length and
+     * last-modified that would otherwise need a HEAD. Caller is responsible for closing the result.
+     */
+    @Override
+    public ObjectContent openObject(String s3Key) throws IOException {
+        ResponseInputStream<GetObjectResponse> content = getObject(GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(s3Key)
+                .build());
+        GetObjectResponse response = content.response();
+        return new ObjectContent(content, new ObjectMetadata(response.eTag(), response.contentLength(),
+                response.lastModified(), response.contentType()));
+    }
+
+    private ResponseInputStream<GetObjectResponse> getObject(GetObjectRequest request) throws IOException {
         try {
-            GetObjectRequest request = GetObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(s3Key)
-                    .build();
-            ResponseInputStream<GetObjectResponse> response = s3Client.getObject(request);
-            LOGGER.debug("Fetched object from S3: {}", s3Key);
+            ResponseInputStream<GetObjectResponse> response = hedgedReader.read(() -> s3Client.getObject(request));
+            LOGGER.debug("Fetched object from S3: {} {}", request.key(), request.range() != null ? request.range() : "");
             return response;
+        } catch (NoSuchKeyException e) {
+            LOGGER.debug("S3 object not found: {}", request.key());
+            throw new FileNotFoundException("S3 object not found: " + request.key());
         } catch (S3Exception e) {
-            LOGGER.debug("S3 getObject failed for key: {}, error: {}", s3Key, e.awsErrorDetails().errorMessage());
+            LOGGER.debug("S3 getObject failed for key: {}, error: {}", request.key(), e.awsErrorDetails().errorMessage());
             throw new IOException("Failed to read from S3: " + e.awsErrorDetails().errorMessage(), e);
         }
     }
 
+    /**
+     * Reads object headers (ETag, length, last-modified, content type) without transferring the body.
+     *
+     * @throws FileNotFoundException if the object does not exist
+     */
+    @Override
+    public ObjectMetadata headObject(String s3Key) throws IOException {
+        try {
+            HeadObjectResponse response = s3Client.headObject(HeadObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(s3Key)
+                    .build());
+            return new ObjectMetadata(response.eTag(), response.contentLength(),
+                    response.lastModified(), response.contentType());
+        } catch (NoSuchKeyException e) {
+            throw new FileNotFoundException("S3 object not found: " + s3Key);
+        } catch (S3Exception e) {
+            // HEAD responses carry no error body, so a missing key may surface as a bare 404
+            if (e.statusCode() == 404) {
+                throw new FileNotFoundException("S3 object not found: " + s3Key);
+            }
+            throw new IOException("Failed to read S3 object headers: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Checks whether an object exists with a HEAD request (no body transfer).
+     */
+    @Override
+    public boolean objectExists(String s3Key) {
+        try {
+            headObject(s3Key);
+            return true;
+        } catch (FileNotFoundException e) {
+            return false;
+        } catch (IOException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
     /**
      * Gets the public URL for an S3 object
      */
+    @Override
     public String getPublicUrl(String s3Key) {
         String url = String.format("https://%s.s3.%s.amazonaws.com/%s", bucketName, region, s3Key);
         LOGGER.debug("Generated S3 public URL: {}", url);
         return url;
     }
+
+    public record PresignedUpload(String key, String url, Map<String, String> headers, Instant expiresAt) {}
 }
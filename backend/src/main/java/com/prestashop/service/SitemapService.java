@@ -0,0 +1,332 @@
+package com.prestashop.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Sitemaps for active, visible products and active categories: gzipped shards of at most
+ * {@link #SHARD_SIZE} URLs and a sitemap index listing them.
+ * <p>
+ * Shard {@code n} of a section holds the rows with ids in {@code (n * SHARD_SIZE, (n + 1) * SHARD_SIZE]},
+ * so a shard's contents only change when one of its own rows does. One aggregate query per section
+ * fingerprints every shard (row count, id sum, slug checksum, latest {@code date_upd}); the
+ * fingerprint is part of the shard's file name, and only shards whose name changed are rewritten.
+ * A shard is written straight from a JDBC result over its id range into a gzip stream, without
+ * loading entities, and moved into place once complete. Since files are never replaced in place,
+ * they can be served with sendfile and cached forever; replaced shards are kept until the next
+ * build for crawlers still holding the previous index.
+ */
+@Service
+@RequiredArgsConstructor
+public class SitemapService {
+    private Logger LOGGER = LoggerFactory.getLogger(getClass());
+
+    /** The protocol's limit on URLs per sitemap file. */
+    public static final int SHARD_SIZE = 50000;
+    public static final Pattern SHARD_FILE = Pattern.compile("(products|categories)-(\\d+)-([0-9a-f]{16})\\.xml\\.gz");
+
+    private static final String INDEX_FILE = "sitemap.xml";
+    private static final String NAMESPACE = "http://www.sitemaps.org/schemas/sitemap/0.9";
+    private static final Pattern INDEX_LOC = Pattern.compile("<loc>[^<]*/([^/<]+)</loc>");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${sitemap.enabled:true}")
+    private boolean enabled;
+
+    @Value("${sitemap.path:./sitemaps}")
+    private String sitemapPath;
+
+    @Value("${sitemap.site-url:http://localhost:3000}")
+    private String siteUrl;
+
+    @Value("${sitemap.base-url:http://localhost:8080}")
+    private String baseUrl;
+
+    private final ReentrantLock building = new ReentrantLock();
+    private Path directory;
+    private volatile Index current;
+    private Set<String> previousFiles = Set.of();
+
+    /** A section of the site: its rows, the columns the query reads, and the page path of a row. */
+    private enum Section {
+        PRODUCTS("products", "ps_product", "id_product",
+                "active = 1 AND visibility IN ('BOTH', 'CATALOG', 'SEARCH')", "/product/"),
+        CATEGORIES("categories", "ps_category", "id_category",
+                "active = 1 AND is_root_category = 0", "/category/");
+
+        final String name;
+        final String table;
+        final String idColumn;
+        final String condition;
+        final String pagePath;
+
+        Section(String name, String table, String idColumn, String condition, String pagePath) {
+            this.name = name;
+            this.table = table;
+            this.idColumn = idColumn;
+            this.condition = condition;
+            this.pagePath = pagePath;
+        }
+    }
+
+    /** One shard as of the last build: the fingerprint query's result for it. */
+    private record Shard(Section section, long number, String hash, long urls, LocalDate lastModified) {
+        String fileName() {
+            return section.name + "-" + number + "-" + hash + ".xml.gz";
+        }
+    }
+
+    /** The current sitemap index, kept in memory as it is rewritten on every change. */
+    public record Index(byte[] content, String eTag, long lastModified, int shards) {}
+
+    @PostConstruct
+    public void init() throws IOException {
+        directory = Paths.get(sitemapPath).toAbsolutePath().normalize();
+        Files.createDirectories(directory);
+        Path indexFile = directory.resolve(INDEX_FILE);
+        if (Files.isRegularFile(indexFile)) {
+            byte[] content = Files.readAllBytes(indexFile);
+            Set<String> files = indexedFiles(content);
+            current = new Index(content, eTag(content), Files.getLastModifiedTime(indexFile).toMillis(), files.size());
+            previousFiles = files;
+        }
+    }
+
+    /** The sitemap index, or null before the first build. */
+    public Index index() {
+        return current;
+    }
+
+    /** The shard file with this name, or null if the name is not a shard's. */
+    public Path shardFile(String fileName) {
+        return SHARD_FILE.matcher(fileName).matches() ? directory.resolve(fileName) : null;
+    }
+
+    public boolean isBuilding() {
+        return building.isLocked();
+    }
+
+    @Scheduled(initialDelayString = "${sitemap.initial-delay-ms:30000}", fixedDelayString = "${sitemap.interval-ms:3600000}")
+    public void scheduledBuild() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            build(MigrationProgress.NONE);
+        } catch (IllegalStateException e) {
+            LOGGER.info("Skipping scheduled sitemap build: {}", e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Sitemap build failed", e);
+        }
+    }
+
+    /**
+     * Rewrites the shards whose contents changed since the last build, then the index if any did.
+     * Returns a summary.
+     *
+     * @throws IllegalStateException if a build is already running
+     */
+    public String build(MigrationProgress progress) throws IOException {
+        if (!building.tryLock()) {
+            throw new IllegalStateException("The sitemap is already being built");
+        }
+        try {
+            return doBuild(progress);
+        } finally {
+            building.unlock();
+        }
+    }
+
+    private String doBuild(MigrationProgress progress) throws IOException {
+        List<Shard> shards = new ArrayList<>();
+        for (Section section : Section.values()) {
+            shards.addAll(fingerprint(section));
+        }
+        progress.setTotal(shards.size());
+
+        int written = 0;
+        Set<String> files = new HashSet<>();
+        for (Shard shard : shards) {
+            if (progress.isCancelled()) {
+                throw new IllegalStateException("Sitemap build cancelled");
+            }
+            files.add(shard.fileName());
+            if (Files.isRegularFile(directory.resolve(shard.fileName()))) {
+                progress.skipped(1);
+                continue;
+            }
+            writeShard(shard);
+            written++;
+            progress.success();
+        }
+
+        Index previous = current;
+        byte[] content = renderIndex(shards);
+        if (previous == null || !Arrays.equals(previous.content(), content)) {
+            Path temp = directory.resolve(INDEX_FILE + ".tmp");
+            Files.write(temp, content);
+            Files.move(temp, directory.resolve(INDEX_FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            current = new Index(content, eTag(content), System.currentTimeMillis(), shards.size());
+        }
+
+        Set<String> keep = new HashSet<>(files);
+        keep.addAll(previousFiles);
+        deleteUnlisted(keep);
+        previousFiles = files;
+
+        String summary = String.format("Sitemap: %d shards, %d rewritten", shards.size(), written);
+        LOGGER.info(summary);
+        return summary;
+    }
+
+    /** Fingerprints of every non-empty shard of a section, from one GROUP BY over the rows' index columns. */
+    private List<Shard> fingerprint(Section section) {
+        String sql = "SELECT (" + section.idColumn + " - 1) DIV " + SHARD_SIZE + " AS shard, COUNT(*), " +
+                "SUM(" + section.idColumn + "), SUM(CRC32(link_rewrite)), MAX(date_upd) " +
+                "FROM " + section.table + " WHERE " + section.condition + " GROUP BY shard ORDER BY shard";
+        return jdbcTemplate.query(sql, (rs, rowNum) -> {
+            long number = rs.getLong(1);
+            long urls = rs.getLong(2);
+            Timestamp lastUpdate = rs.getTimestamp(5);
+            // The URLs are part of the contents, so a new site URL rewrites every shard
+            String fingerprint = String.join("|", siteUrl, String.valueOf(urls), rs.getString(3), rs.getString(4),
+                    String.valueOf(lastUpdate));
+            return new Shard(section, number, sha256Hex(fingerprint).substring(0, 16), urls,
+                    lastUpdate != null ? lastUpdate.toLocalDateTime().toLocalDate() : null);
+        });
+    }
+
+    private void writeShard(Shard shard) throws IOException {
+        Section section = shard.section();
+        Path target = directory.resolve(shard.fileName());
+        Path temp = directory.resolve(shard.fileName() + ".tmp");
+        String sql = "SELECT link_rewrite, date_upd FROM " + section.table + " WHERE " + section.idColumn + " > ? " +
+                "AND " + section.idColumn + " <= ? AND " + section.condition + " ORDER BY " + section.idColumn;
+        try (OutputStream out = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)), 64 * 1024)) {
+            XMLStreamWriter xml = XMLOutputFactory.newInstance().createXMLStreamWriter(out, "UTF-8");
+            xml.writeStartDocument("UTF-8", "1.0");
+            xml.writeStartElement("urlset");
+            xml.writeDefaultNamespace(NAMESPACE);
+            jdbcTemplate.query(sql, rs -> {
+                Timestamp lastUpdate = rs.getTimestamp(2);
+                writeEntry(xml, "url", siteUrl + section.pagePath + rs.getString(1),
+                        lastUpdate != null ? lastUpdate.toLocalDateTime().toLocalDate() : null);
+            }, shard.number() * SHARD_SIZE, (shard.number() + 1) * SHARD_SIZE);
+            xml.writeEndElement();
+            xml.writeEndDocument();
+            xml.close();
+        } catch (XMLStreamException e) {
+            Files.deleteIfExists(temp);
+            throw new IOException(e);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        LOGGER.debug("Wrote sitemap shard {} ({} URLs)", shard.fileName(), shard.urls());
+    }
+
+    private byte[] renderIndex(List<Shard> shards) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            XMLStreamWriter xml = XMLOutputFactory.newInstance().createXMLStreamWriter(out, "UTF-8");
+            xml.writeStartDocument("UTF-8", "1.0");
+            xml.writeStartElement("sitemapindex");
+            xml.writeDefaultNamespace(NAMESPACE);
+            for (Shard shard : shards) {
+                writeEntry(xml, "sitemap", baseUrl + "/sitemaps/" + shard.fileName(), shard.lastModified());
+            }
+            xml.writeEndElement();
+            xml.writeEndDocument();
+            xml.close();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeEntry(XMLStreamWriter xml, String element, String loc, LocalDate lastModified) {
+        try {
+            xml.writeStartElement(element);
+            xml.writeStartElement("loc");
+            xml.writeCharacters(loc);
+            xml.writeEndElement();
+            if (lastModified != null) {
+                xml.writeStartElement("lastmod");
+                xml.writeCharacters(lastModified.toString());
+                xml.writeEndElement();
+            }
+            xml.writeEndElement();
+        } catch (XMLStreamException e) {
+            throw new IllegalStateException("Could not write sitemap entry", e);
+        }
+    }
+
+    /** Deletes shard files listed neither in the current index nor in the previous one. */
+    private void deleteUnlisted(Set<String> keep) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.xml.gz")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (SHARD_FILE.matcher(name).matches() && !keep.contains(name)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Could not delete old sitemap shards: {}", e.getMessage());
+        }
+    }
+
+    private static Set<String> indexedFiles(byte[] index) {
+        Set<String> files = new HashSet<>();
+        Matcher matcher = INDEX_LOC.matcher(new String(index, StandardCharsets.UTF_8));
+        while (matcher.find()) {
+            files.add(matcher.group(1));
+        }
+        return files;
+    }
+
+    private static String eTag(byte[] content) {
+        return "\"" + sha256Hex(content).substring(0, 16) + "\"";
+    }
+
+    private static String sha256Hex(String value) {
+        return sha256Hex(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String sha256Hex(byte[] value) {
+        return HexFormat.of().formatHex(ImageFingerprint.sha256().digest(value));
+    }
+}
@@ -0,0 +1,166 @@
+package com.prestashop.service;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Unique {@code link_rewrite} slugs for products and categories: the base slug if it is free,
+ * otherwise {@code base-1}, {@code base-2}, ... (the lowest free suffix).
+ * <p>
+ * The slugs taken for a set of bases are read with one query, {@code link_rewrite = base OR
+ * link_rewrite LIKE 'base-%'} per base, which the unique index on link_rewrite serves as range
+ * scans. Suffixes are then picked in memory with one cursor per base that only moves forward, so
+ * allocating n slugs for one popular base costs one query and O(n) work instead of n queries.
+ * <p>
+ * Two concurrent requests can still pick the same slug; the unique constraint catches it, and
+ * {@link #insert} then allocates again and retries in a new transaction.
+ */
+@Service
+@RequiredArgsConstructor
+public class SlugAllocator {
+    private Logger LOGGER = LoggerFactory.getLogger(getClass());
+
+    private static final Pattern NON_SLUG_CHARS = Pattern.compile("[^a-z0-9\\s-]");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern DASHES = Pattern.compile("-+");
+    private static final Pattern EDGE_DASHES = Pattern.compile("^-|-$");
+    private static final Pattern NUMBER = Pattern.compile("[1-9][0-9]*");
+    private static final int MAX_ATTEMPTS = 5;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    /** The tables whose rows have slugs, with the slug used when a name has no usable characters. */
+    public enum Scope {
+        PRODUCT("ps_product", "product"),
+        CATEGORY("ps_category", "category");
+
+        private final String table;
+        private final String fallback;
+
+        Scope(String table, String fallback) {
+            this.table = table;
+            this.fallback = fallback;
+        }
+    }
+
+    /** Lower-case ASCII letters, digits and single dashes, from a display name. */
+    public static String slugify(String name) {
+        String slug = NON_SLUG_CHARS.matcher(name.toLowerCase(Locale.ROOT)).replaceAll("");
+        slug = WHITESPACE.matcher(slug).replaceAll("-");
+        slug = DASHES.matcher(slug).replaceAll("-");
+        return EDGE_DASHES.matcher(slug).replaceAll("");
+    }
+
+    /** The requested slug if given, otherwise one derived from the name. */
+    public static String baseSlug(String requested, String name) {
+        return requested != null && !requested.isBlank() ? requested.trim() : slugify(name);
+    }
+
+    /** A free slug for one base. */
+    public String allocate(Scope scope, String base) {
+        return allocateAll(scope, List.of(base)).get(0);
+    }
+
+    /**
+     * Free slugs for the given bases, in order; bases repeated in the list get distinct slugs.
+     */
+    public List<String> allocateAll(Scope scope, List<String> bases) {
+        if (bases.isEmpty()) {
+            return List.of();
+        }
+        List<String> normalized = bases.stream()
+                .map(base -> base == null || base.isBlank() ? scope.fallback : base)
+                .toList();
+        Set<String> distinct = new LinkedHashSet<>(normalized);
+        Set<String> taken = new HashSet<>(findTaken(scope, distinct));
+
+        Map<String, Integer> nextSuffix = new HashMap<>();
+        List<String> slugs = new ArrayList<>(normalized.size());
+        for (String base : normalized) {
+            String slug = base;
+            if (!taken.add(slug)) {
+                int suffix = nextSuffix.getOrDefault(base, 1);
+                while (!taken.add(base + "-" + suffix)) {
+                    suffix++;
+                }
+                slug = base + "-" + suffix;
+                nextSuffix.put(base, suffix + 1);
+            }
+            slugs.add(slug);
+        }
+        return slugs;
+    }
+
+    /**
+     * Allocates a slug for {@code base} and runs {@code insert} with it in a transaction. If the
+     * insert hits the unique constraint because the slug was taken concurrently, allocates again
+     * and retries. The insert must flush, so a violation surfaces inside the transaction.
+     * <p>
+     * Inside a caller's transaction a violation has already marked it for rollback, so there is
+     * no retry there.
+     */
+    public <T> T insert(Scope scope, String base, Function<String, T> insert) {
+        boolean retryable = !TransactionSynchronizationManager.isActualTransactionActive();
+        for (int attempt = 1; ; attempt++) {
+            String slug = allocate(scope, base);
+            try {
+                return transactionTemplate.execute(status -> insert.apply(slug));
+            } catch (DataIntegrityViolationException e) {
+                if (!retryable || attempt >= MAX_ATTEMPTS || !exists(scope, slug)) {
+                    // Not a slug race, or one we cannot recover from
+                    throw e;
+                }
+                LOGGER.debug("Slug {} was taken concurrently, allocating another (attempt {})", slug, attempt);
+            }
+        }
+    }
+
+    private boolean exists(Scope scope, String slug) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM " + scope.table + " WHERE link_rewrite = ?", Integer.class, slug);
+        return count != null && count > 0;
+    }
+
+    /** Existing slugs equal to one of the bases or made of a base and a numeric suffix. */
+    private List<String> findTaken(Scope scope, Set<String> bases) {
+        String sql = "SELECT link_rewrite FROM " + scope.table + " WHERE "
+                + String.join(" OR ", Collections.nCopies(bases.size(), "link_rewrite = ? OR link_rewrite LIKE ?"));
+        List<Object> parameters = new ArrayList<>(bases.size() * 2);
+        for (String base : bases) {
+            parameters.add(base);
+            parameters.add(escapeLike(base) + "-%");
+        }
+        // The prefix also matches longer slugs ("t-shirt" finds "t-shirt-blue"); only suffixed copies can collide
+        return jdbcTemplate.queryForList(sql, String.class, parameters.toArray()).stream()
+                .filter(slug -> bases.contains(slug) || isSuffixed(slug, bases))
+                .toList();
+    }
+
+    private static boolean isSuffixed(String slug, Set<String> bases) {
+        int dash = slug.lastIndexOf('-');
+        return dash > 0 && bases.contains(slug.substring(0, dash)) && NUMBER.matcher(slug.substring(dash + 1)).matches();
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,317 @@
+package com.prestashop.service;
+
+import com.prestashop.entity.ImageObject;
+import com.prestashop.entity.ImageType;
+import com.prestashop.entity.StorageDeletion;
+import com.prestashop.repository.ImageObjectRepository;
+import com.prestashop.repository.StorageDeletionRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Transactional outbox for object storage deletions. Callers record the keys to delete inside
+ * their own transaction, so an object is only removed once the rows that referenced it are gone
+ * for good, and a failed storage call can never roll back (or be lost by) the database change.
+ * <p>
+ * After each commit a background worker drains the outbox in batches of up to
+ * {@link ObjectStorage#MAX_DELETE_BATCH} keys (one DeleteObjects request on S3). Keys the store
+ * fails to delete are retried with exponential backoff; a scheduled pass picks up retries and
+ * anything left over from a restart.
+ * <p>
+ * A batch is claimed with {@code FOR UPDATE SKIP LOCKED} in a transaction that spans the storage
+ * call, and keys whose image is indexed in ps_image_object again are dropped instead of deleted,
+ * so a content-addressed object re-referenced after its deletion was queued stays in place.
+ */
+@Service
+@RequiredArgsConstructor
+public class StorageDeletionService {
+    private Logger LOGGER = LoggerFactory.getLogger(getClass());
+
+    private static final String INSERT_DELETION =
+            "INSERT INTO ps_storage_deletion (s3_key, key_hash, attempts, next_attempt_at, date_add) VALUES (?, ?, 0, ?, ?)";
+    private static final int MAX_ERROR_LENGTH = 512;
+    /** {@code objects/<shard>/<sha-256>[-<image type>].<ext>}; group 2 is set for size variants. */
+    private static final Pattern CONTENT_ADDRESSED_KEY =
+            Pattern.compile("objects/[0-9a-f]{2}/([0-9a-f]{64})(-[a-z_]+)?\\.[a-z0-9]+");
+
+    private final StorageDeletionRepository deletionRepository;
+    private final ImageObjectRepository imageObjectRepository;
+    private final ObjectStorage objectStorage;
+    private final ImageCacheService imageCacheService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ReentrantLock draining = new ReentrantLock();
+    private final AtomicBoolean drainRequested = new AtomicBoolean();
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "storage-deletion");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${storage.deletion.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${storage.deletion.base-backoff-seconds:30}")
+    private long baseBackoffSeconds;
+
+    @Value("${storage.deletion.max-backoff-seconds:3600}")
+    private long maxBackoffSeconds;
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+
+    /**
+     * The keys an image occupies in storage: the original and every generated size variant.
+     */
+    public static List<String> imageKeys(String s3Key) {
+        List<String> keys = new ArrayList<>(ImageType.values().length + 1);
+        keys.add(s3Key);
+        for (ImageType type : ImageType.values()) {
+            keys.add(ImageVariantService.variantKey(s3Key, type));
+        }
+        return keys;
+    }
+
+    /** Hex SHA-256 of a key, the indexed lookup column of ps_storage_deletion. */
+    static String keyHash(String s3Key) {
+        return HexFormat.of().formatHex(ImageFingerprint.sha256().digest(s3Key.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Records image originals, with their variants, for deletion once the current transaction commits.
+     */
+    @Transactional
+    public void enqueueImages(Collection<String> s3Keys) {
+        Set<String> keys = new LinkedHashSet<>();
+        s3Keys.forEach(s3Key -> keys.addAll(imageKeys(s3Key)));
+        enqueue(keys);
+    }
+
+    /**
+     * Withdraws queued deletions of image originals and their variants, for an object that has
+     * been referenced again since. Returns the number of withdrawn deletions. Rows are matched by
+     * key hash, so only deletions of these keys are locked: if a worker has already claimed one,
+     * this waits until that batch is done; the worker skips keys indexed again by then, and
+     * anything it did delete is uploaded again by the caller.
+     */
+    @Transactional
+    public int cancelImages(Collection<String> s3Keys) {
+        Set<String> keyHashes = new LinkedHashSet<>();
+        s3Keys.forEach(s3Key -> imageKeys(s3Key).forEach(key -> keyHashes.add(keyHash(key))));
+        int cancelled = deletionRepository.deleteByKeyHashIn(keyHashes);
+        if (cancelled > 0) {
+            LOGGER.info("Cancelled {} queued deletions for re-referenced objects", cancelled);
+        }
+        return cancelled;
+    }
+
+    /**
+     * Records objects for deletion once the current transaction commits.
+     */
+    @Transactional
+    public void enqueue(Collection<String> s3Keys) {
+        if (s3Keys.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_DELETION, s3Keys.stream()
+                .map(s3Key -> new Object[] { s3Key, keyHash(s3Key), now, now })
+                .toList());
+        LOGGER.debug("Queued {} stored objects for deletion", s3Keys.size());
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    requestDrain();
+                }
+            });
+        } else {
+            requestDrain();
+        }
+    }
+
+    /**
+     * Periodic pass for retries that have come due and for rows left behind by a restart.
+     */
+    @Scheduled(fixedDelayString = "${storage.deletion.poll-interval-ms:30000}")
+    public void drainDue() {
+        if (!draining.tryLock()) {
+            return;
+        }
+        try {
+            drain();
+        } finally {
+            draining.unlock();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pending", deletionRepository.count());
+        stats.put("retrying", deletionRepository.countRetrying());
+        return stats;
+    }
+
+    private void requestDrain() {
+        if (!drainRequested.compareAndSet(false, true)) {
+            return;
+        }
+        worker.execute(() -> {
+            drainRequested.set(false);
+            // Waits for a scheduled pass in progress, which may already have read past the new rows
+            draining.lock();
+            try {
+                drain();
+            } finally {
+                draining.unlock();
+            }
+        });
+    }
+
+    private void drain() {
+        try {
+            int pageSize = Math.min(batchSize, ObjectStorage.MAX_DELETE_BATCH);
+            Integer claimed;
+            do {
+                claimed = transactionTemplate.execute(status -> processDue(pageSize));
+            } while (claimed != null && claimed == pageSize);
+        } catch (RuntimeException e) {
+            LOGGER.error("Failed to drain storage deletion outbox", e);
+        }
+    }
+
+    /**
+     * Claims a batch of due deletions and processes it in one transaction. The rows stay locked
+     * until the storage call has returned, so an image re-referenced meanwhile waits in
+     * {@link #cancelImages} for this batch instead of being deleted after it was cancelled.
+     */
+    private int processDue(int pageSize) {
+        List<StorageDeletion> batch = deletionRepository.claimDue(LocalDateTime.now(), pageSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> done = new ArrayList<>();
+        Set<String> referenced = referencedKeys(batch.stream().map(StorageDeletion::getS3Key).toList());
+        Set<String> keys = new LinkedHashSet<>();
+        for (StorageDeletion deletion : batch) {
+            if (referenced.contains(deletion.getS3Key())) {
+                // Indexed again since it was queued: the object is live, so the deletion is void
+                done.add(deletion.getId());
+            } else {
+                keys.add(deletion.getS3Key());
+            }
+        }
+        if (!referenced.isEmpty()) {
+            LOGGER.info("Dropped {} queued deletions of objects that are referenced again", referenced.size());
+        }
+
+        Map<String, String> failed = keys.isEmpty() ? Map.of() : deleteFiles(keys);
+        LocalDateTime now = LocalDateTime.now();
+        for (StorageDeletion deletion : batch) {
+            if (!keys.contains(deletion.getS3Key())) {
+                continue;
+            }
+            String error = failed.get(deletion.getS3Key());
+            if (error == null) {
+                done.add(deletion.getId());
+                imageCacheService.invalidate(deletion.getS3Key());
+                continue;
+            }
+            // Managed entity: the update is written when the transaction commits
+            int attempts = deletion.getAttempts() + 1;
+            deletion.setAttempts(attempts);
+            deletion.setNextAttemptAt(now.plusSeconds(backoffSeconds(attempts)));
+            deletion.setLastError(error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+            LOGGER.warn("Could not delete {} from storage (attempt {}): {}", deletion.getS3Key(), attempts, error);
+        }
+        deletionRepository.deleteAllByIdInBatch(done);
+        return batch.size();
+    }
+
+    private Map<String, String> deleteFiles(Set<String> keys) {
+        try {
+            return objectStorage.deleteFiles(keys);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Deleting {} stored objects failed: {}", keys.size(), e.getMessage());
+            Map<String, String> failed = new LinkedHashMap<>();
+            for (String key : keys) {
+                failed.put(key, e.getMessage());
+            }
+            return failed;
+        }
+    }
+
+    /**
+     * The content-addressed keys among {@code s3Keys} whose image is indexed in ps_image_object:
+     * originals indexed under that key, and size variants of any indexed copy of the same content
+     * (variant keys do not carry the original's extension).
+     */
+    private Set<String> referencedKeys(List<String> s3Keys) {
+        Map<String, Matcher> contentAddressed = new LinkedHashMap<>();
+        for (String s3Key : s3Keys) {
+            Matcher matcher = CONTENT_ADDRESSED_KEY.matcher(s3Key);
+            if (matcher.matches()) {
+                contentAddressed.put(s3Key, matcher);
+            }
+        }
+        if (contentAddressed.isEmpty()) {
+            return Set.of();
+        }
+        Set<String> hashes = new HashSet<>();
+        contentAddressed.values().forEach(matcher -> hashes.add(matcher.group(1)));
+        Set<String> indexedHashes = new HashSet<>();
+        Set<String> indexedKeys = new HashSet<>();
+        for (ImageObject object : imageObjectRepository.findByContentHashIn(hashes)) {
+            indexedHashes.add(object.getContentHash());
+            indexedKeys.add(object.getS3Key());
+        }
+
+        Set<String> referenced = new LinkedHashSet<>();
+        contentAddressed.forEach((s3Key, matcher) -> {
+            boolean variant = matcher.group(2) != null;
+            if (variant ? indexedHashes.contains(matcher.group(1)) : indexedKeys.contains(s3Key)) {
+                referenced.add(s3Key);
+            }
+        });
+        return referenced;
+    }
+
+    private long backoffSeconds(int attempts) {
+        long backoff = baseBackoffSeconds << Math.min(attempts - 1, 20);
+        return Math.min(backoff, maxBackoffSeconds);
+    }
+}
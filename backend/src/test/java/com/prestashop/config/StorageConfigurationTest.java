@@ -0,0 +1,53 @@
+package com.prestashop.config;
+
+import com.prestashop.controller.admin.AdminStorageController;
+import com.prestashop.service.HedgedReader;
+import com.prestashop.service.ImageCacheService;
+import com.prestashop.service.InMemoryObjectStorage;
+import com.prestashop.service.ObjectStorage;
+import com.prestashop.service.S3MultipartUploader;
+import com.prestashop.service.S3Service;
+import com.prestashop.service.StorageDeletionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * The storage beans for each {@code storage.type}, with no AWS settings at all. The placeholder
+ * configurer makes any {@code ${aws...}} that is still resolved fail the context, as it does in
+ * the application.
+ */
+class StorageConfigurationTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(PropertyPlaceholderAutoConfiguration.class))
+            .withUserConfiguration(S3Config.class, S3Service.class, S3MultipartUploader.class,
+                    InMemoryObjectStorage.class, HedgedReader.class, AdminStorageController.class)
+            .withBean(ImageCacheService.class, () -> mock(ImageCacheService.class))
+            .withBean(StorageDeletionService.class, () -> mock(StorageDeletionService.class));
+
+    @Test
+    void memoryStorageStartsWithoutAwsSettings() {
+        contextRunner.withPropertyValues("storage.type=memory").run(context -> {
+            assertThat(context).hasNotFailed();
+            assertThat(context).getBean(ObjectStorage.class).isInstanceOf(InMemoryObjectStorage.class);
+            assertThat(context).doesNotHaveBean(S3Client.class);
+            assertThat(context).doesNotHaveBean(S3MultipartUploader.class);
+
+            Map<String, Object> stats = context.getBean(AdminStorageController.class).getStats().getBody().getData();
+            assertThat(stats).containsEntry("backend", "InMemoryObjectStorage");
+        });
+    }
+
+    @Test
+    void s3StorageIsTheDefaultAndNeedsAwsSettings() {
+        contextRunner.run(context -> assertThat(context).hasFailed());
+    }
+}
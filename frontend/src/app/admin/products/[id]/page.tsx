@@ -88,6 +88,7 @@ export default function AdminProductFormPage() {
 
     setUploadingImages(true);
     try {
+      const imageFiles: File[] = [];
       for (let i = 0; i < files.length; i++) {
         const file = files[i];
         // Validate file type
@@ -95,9 +96,17 @@ export default function AdminProductFormPage() {
           alert(`File "${file.name}" is not an image`);
           continue;
         }
-        // Upload image
-        const response = await adminProductsApi.uploadImage(productId, file);
-        setImages((prev) => [...prev, response.data]);
+        imageFiles.push(file);
+      }
+      if (imageFiles.length === 0) return;
+
+      // Upload all images in one request; the backend sends them to S3 in parallel
+      const response = await adminProductsApi.uploadImages(productId, imageFiles);
+      const uploaded = response.data.filter((result) => result.success && result.image);
+      setImages((prev) => [...prev, ...uploaded.map((result) => result.image!)]);
+      const failed = response.data.filter((result) => !result.success);
+      if (failed.length > 0) {
+        alert(failed.map((result) => `${result.filename}: ${result.error}`).join('\n'));
       }
     } catch (error: any) {
       alert(error.message || 'Failed to upload image');
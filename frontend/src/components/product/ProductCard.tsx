@@ -22,6 +22,8 @@ export function ProductCard({ product }: ProductCardProps) {
               fill
               className="object-cover transition-transform group-hover:scale-105"
               sizes="(max-width: 640px) 100vw, (max-width: 1024px) 50vw, 25vw"
+              placeholder={product.coverPlaceholder ? 'blur' : 'empty'}
+              blurDataURL={product.coverPlaceholder}
             />
           ) : (
             <div className="flex h-full items-center justify-center text-gray-400">
@@ -5,6 +5,7 @@ import {
   ProductListing,
   Category,
   ProductImage,
+  ImageUploadResult,
   ProductVariant,
   LoginRequest,
   LoginResponse,
@@ -176,13 +177,10 @@ export const adminProductsApi = {
     });
   },
 
-  bulkUpdateStatus: (ids: number[], active: boolean): Promise<ApiResponse<void>> => {
-    const params = new URLSearchParams();
-    ids.forEach(id => params.append('ids', String(id)));
-    params.set('active', String(active));
-
-    return fetchApi(`/admin/products/bulk/status?${params}`, {
+  bulkUpdateStatus: (ids: number[], active: boolean): Promise<ApiResponse<number>> => {
+    return fetchApi('/admin/products/bulk/status', {
       method: 'PATCH',
+      body: JSON.stringify({ ids, active }),
     });
   },
 
@@ -217,6 +215,27 @@ export const adminProductsApi = {
     return response.json();
   },
 
+  uploadImages: async (productId: number, files: File[], coverIndex?: number): Promise<ApiResponse<ImageUploadResult[]>> => {
+    const formData = new FormData();
+    files.forEach(file => formData.append('files', file));
+    if (coverIndex !== undefined) formData.append('coverIndex', String(coverIndex));
+
+    const token = typeof window !== 'undefined' ? localStorage.getItem('token') : null;
+
+    const response = await fetch(`${API_BASE}/admin/products/${productId}/images/batch`, {
+      method: 'POST',
+      headers: token ? { Authorization: `Bearer ${token}` } : {},
+      body: formData,
+    });
+
+    if (!response.ok) {
+      const error = await response.json().catch(() => ({ message: 'Upload failed' }));
+      throw new ApiError(response.status, error.message);
+    }
+
+    return response.json();
+  },
+
   deleteImage: (imageId: number): Promise<ApiResponse<void>> => {
     return fetchApi(`/admin/products/images/${imageId}`, {
       method: 'DELETE',
@@ -51,6 +51,9 @@ export interface Product {
   categories?: Category[];
   images?: ProductImage[];
   coverImage?: string;
+  coverWidth?: number;
+  coverHeight?: number;
+  coverPlaceholder?: string;
   variants?: ProductVariant[];
   dateAdd?: string;
   dateUpd?: string;
@@ -69,6 +72,9 @@ export interface ProductListing {
   inStock: boolean;
   onSale: boolean;
   coverImage?: string;
+  coverWidth?: number;
+  coverHeight?: number;
+  coverPlaceholder?: string;
   defaultCategory?: {
     id: number;
     name: string;
@@ -106,6 +112,18 @@ export interface ProductImage {
   position: number;
   cover: boolean;
   legend?: string;
+  width?: number;
+  height?: number;
+  placeholder?: string;
+  variants?: Record<string, string>;
+}
+
+// Result of one file in a batch image upload
+export interface ImageUploadResult {
+  filename: string;
+  success: boolean;
+  image?: ProductImage;
+  error?: string;
 }
 
 // Product Variant